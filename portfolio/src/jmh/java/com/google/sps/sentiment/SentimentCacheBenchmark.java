@@ -0,0 +1,120 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.sentiment;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares scoring comments with and without CachingSentimentAnalyzer, when most comments repeat
+ * a few short texts.
+ *
+ * <p>The remote analyzer is replaced by one that waits remoteMicros per call. Run with:
+ *
+ * <pre>mvn -P jmh test-compile exec:exec -Djmh.args="SentimentCacheBenchmark"</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SentimentCacheBenchmark {
+
+  private static final String[] COMMON_TEXTS = {
+    "nice", "great site!", "Great site!", "cool", "love it", "Nice!", "awesome", "wow",
+    "  nice  ", "great  site!", "thanks", "so cool", "Love it", "good job", "amazing", "lol"
+  };
+  private static final int WORKLOAD_SIZE = 10000;
+
+  /** How long one call to the remote analyzer takes. */
+  @Param({"1000"})
+  public long remoteMicros;
+
+  /** Percent of comments that repeat one of the common texts. */
+  @Param({"90"})
+  public int duplicatePercent;
+
+  private String[] texts;
+  private int next;
+  private SentimentAnalyzer uncached;
+  private SentimentAnalyzer cached;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    texts = new String[WORKLOAD_SIZE];
+    for (int i = 0; i < texts.length; i++) {
+      texts[i] =
+          random.nextInt(100) < duplicatePercent
+              ? COMMON_TEXTS[random.nextInt(COMMON_TEXTS.length)]
+              : "comment number " + i;
+    }
+    uncached = new SlowAnalyzer(TimeUnit.MICROSECONDS.toNanos(remoteMicros));
+    cached = new CachingSentimentAnalyzer(uncached, 1000, TimeUnit.HOURS.toMillis(1));
+  }
+
+  @Benchmark
+  public float uncached() throws IOException {
+    return uncached.analyzeSentiment(nextText());
+  }
+
+  @Benchmark
+  public float cached() throws IOException {
+    return cached.analyzeSentiment(nextText());
+  }
+
+  private String nextText() {
+    String text = texts[next];
+    next = (next + 1) % texts.length;
+    return text;
+  }
+
+  /** Stands in for the Natural Language API, which takes a round trip per call. */
+  private static final class SlowAnalyzer implements SentimentAnalyzer {
+    private final long delayNanos;
+
+    SlowAnalyzer(long delayNanos) {
+      this.delayNanos = delayNanos;
+    }
+
+    @Override
+    public float analyzeSentiment(String text) {
+      LockSupport.parkNanos(delayNanos);
+      return text.length() % 3 - 1;
+    }
+
+    @Override
+    public boolean isHealthy() {
+      return true;
+    }
+
+    @Override
+    public void close() {}
+  }
+}
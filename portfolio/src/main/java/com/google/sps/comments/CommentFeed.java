@@ -0,0 +1,286 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.comments;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.SortDirection;
+import com.google.appengine.api.datastore.QueryResultIterator;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.data.Comment;
+import com.google.sps.servlets.HttpCaching;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the first page of the comment feed serialized in memory, so reading it costs the same no
+ * matter how many comments exist.
+ *
+ * <p>The page is read from Datastore once and then updated in place: new comments are put in front
+ * of it and scored comments replace their pending versions. The cursor of the page still points
+ * after the comments that were read from Datastore, so the next page continues from there. Once
+ * enough comments were added, or the page is older than its maximum age (other instances may have
+ * written comments too), the page is read again from Datastore.
+ */
+public final class CommentFeed {
+
+  private final DatastoreService datastore;
+  private final int pageSize;
+  private final long maxAgeMillis;
+  private final LongSupplier clock;
+  private volatile Snapshot snapshot;
+  private long version;
+
+  public CommentFeed(DatastoreService datastore, int pageSize, long maxAgeMillis) {
+    this(datastore, pageSize, maxAgeMillis, System::currentTimeMillis);
+  }
+
+  CommentFeed(DatastoreService datastore, int pageSize, long maxAgeMillis, LongSupplier clock) {
+    this.datastore = datastore;
+    this.pageSize = pageSize;
+    this.maxAgeMillis = maxAgeMillis;
+    this.clock = clock;
+  }
+
+  /** Returns the serialized first page, reading it from Datastore first if needed. */
+  public Snapshot get() {
+    Snapshot current = snapshot;
+    if (current != null && clock.getAsLong() - current.builtMillis < maxAgeMillis) {
+      return current;
+    }
+    synchronized (this) {
+      // Another thread may have rebuilt it while this one was waiting
+      current = snapshot;
+      if (current == null || clock.getAsLong() - current.builtMillis >= maxAgeMillis) {
+        current = load();
+        snapshot = current;
+      }
+      return current;
+    }
+  }
+
+  /**
+   * Puts a comment that was just saved in front of the first page, unless the page was read from
+   * Datastore after the comment was saved and already holds it.
+   */
+  public synchronized void add(Entity comment) {
+    Snapshot current = snapshot;
+    if (current == null) {
+      return;
+    }
+    for (Entity existing : current.comments) {
+      if (existing.getKey().equals(comment.getKey())) {
+        return;
+      }
+    }
+    // Added comments are kept on top of the ones read from Datastore until there are too many
+    if (current.comments.size() - current.loadedCount >= pageSize) {
+      snapshot = null;
+      return;
+    }
+    List<Entity> comments = new ArrayList<>(current.comments.size() + 1);
+    comments.add(comment);
+    comments.addAll(current.comments);
+    snapshot = serialize(comments, current.loadedCount, current.cursor, current.builtMillis);
+  }
+
+  /** Replaces the comments in the first page that have a newer version in updated. */
+  public synchronized void update(List<Entity> updated) {
+    Snapshot current = snapshot;
+    if (current == null) {
+      return;
+    }
+    Map<Key, Entity> updatedByKey = new HashMap<>();
+    for (Entity comment : updated) {
+      updatedByKey.put(comment.getKey(), comment);
+    }
+    List<Entity> comments = new ArrayList<>(current.comments.size());
+    boolean changed = false;
+    for (Entity comment : current.comments) {
+      Entity newer = updatedByKey.get(comment.getKey());
+      comments.add(newer == null ? comment : newer);
+      changed |= newer != null;
+    }
+    if (changed) {
+      snapshot = serialize(comments, current.loadedCount, current.cursor, current.builtMillis);
+    }
+  }
+
+  /** Builds a Comment from its Datastore entity. */
+  public static Comment toComment(Entity entity) {
+    long id = entity.getKey().getId();
+    String text = (String) entity.getProperty("text-input");
+    long timestamp = (long) entity.getProperty("timestamp");
+    Double score = (Double) entity.getProperty("sentiment_score");
+    String user = (String) entity.getProperty("user");
+    return new Comment(id, text, timestamp, score, user);
+  }
+
+  /**
+   * Writes a page of comments as {"comments": [...], "cursor": ...}. A null cursor means there is
+   * no next page.
+   */
+  public static void writePage(Iterator<Entity> comments, IntFunction<String> cursor, Writer out)
+      throws IOException {
+    Gson gson = new Gson();
+    JsonWriter writer = new JsonWriter(out);
+    writer.beginObject();
+    writer.name("comments").beginArray();
+    int count = 0;
+    while (comments.hasNext()) {
+      gson.toJson(toComment(comments.next()), Comment.class, writer);
+      count++;
+    }
+    writer.endArray();
+    // The cursor is only known once the comments have been read
+    writer.name("cursor").value(cursor.apply(count));
+    writer.endObject();
+    writer.flush();
+  }
+
+  /** Reads the first page from Datastore. Called with the lock held. */
+  private Snapshot load() {
+    Query query = new Query("Comment").addSort("timestamp", SortDirection.DESCENDING);
+    QueryResultIterator<Entity> iterator =
+        datastore.prepare(query).asQueryResultIterator(FetchOptions.Builder.withLimit(pageSize));
+    List<Entity> comments = new ArrayList<>(pageSize);
+    while (iterator.hasNext()) {
+      comments.add(iterator.next());
+    }
+    // A short page means there is nothing left to read, so no cursor is sent back
+    String cursor = comments.size() == pageSize ? iterator.getCursor().toWebSafeString() : null;
+    return serialize(comments, comments.size(), cursor, clock.getAsLong());
+  }
+
+  /** Serializes comments into a new version of the page. Called with the lock held. */
+  private Snapshot serialize(
+      List<Entity> comments, int loadedCount, String cursor, long builtMillis) {
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try {
+      Writer writer = new OutputStreamWriter(json, StandardCharsets.UTF_8);
+      writePage(comments.iterator(), count -> cursor, writer);
+      try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+        json.writeTo(gzip);
+      }
+    } catch (IOException e) {
+      // Only in-memory streams are written to, so this cannot happen
+      throw new IllegalStateException(e);
+    }
+    byte[] jsonBytes = json.toByteArray();
+    byte[] gzippedBytes = gzipped.toByteArray();
+
+    version++;
+    return new Snapshot(
+        version,
+        HttpCaching.etag(jsonBytes),
+        HttpCaching.etag(gzippedBytes),
+        jsonBytes,
+        gzippedBytes,
+        Collections.unmodifiableList(comments),
+        loadedCount,
+        cursor,
+        builtMillis,
+        clock.getAsLong());
+  }
+
+  /** An immutable, serialized version of the first page. */
+  public static final class Snapshot {
+    private final long version;
+    private final String etag;
+    private final String gzippedEtag;
+    private final byte[] json;
+    private final byte[] gzippedJson;
+    private final List<Entity> comments;
+    private final int loadedCount;
+    private final String cursor;
+    private final long builtMillis;
+    private final long modifiedMillis;
+
+    private Snapshot(
+        long version,
+        String etag,
+        String gzippedEtag,
+        byte[] json,
+        byte[] gzippedJson,
+        List<Entity> comments,
+        int loadedCount,
+        String cursor,
+        long builtMillis,
+        long modifiedMillis) {
+      this.version = version;
+      this.etag = etag;
+      this.gzippedEtag = gzippedEtag;
+      this.json = json;
+      this.gzippedJson = gzippedJson;
+      this.comments = comments;
+      this.loadedCount = loadedCount;
+      this.cursor = cursor;
+      this.builtMillis = builtMillis;
+      this.modifiedMillis = modifiedMillis;
+    }
+
+    /** Returns a number that grows every time the page changes. */
+    public long getVersion() {
+      return version;
+    }
+
+    /** Returns the strong ETag of the page, including its quotes. */
+    public String getEtag() {
+      return etag;
+    }
+
+    /** Returns the strong ETag of the gzipped page, including its quotes. */
+    public String getGzippedEtag() {
+      return gzippedEtag;
+    }
+
+    /** Returns the page as UTF-8 JSON. Callers must not modify the array. */
+    public byte[] getJson() {
+      return json;
+    }
+
+    /** Returns the gzipped page. Callers must not modify the array. */
+    public byte[] getGzippedJson() {
+      return gzippedJson;
+    }
+
+    /** Returns when the page was last read from Datastore, in epoch milliseconds. */
+    public long getBuiltMillis() {
+      return builtMillis;
+    }
+
+    /** Returns when this version of the page was made, in epoch milliseconds. */
+    public long getModifiedMillis() {
+      return modifiedMillis;
+    }
+  }
+}
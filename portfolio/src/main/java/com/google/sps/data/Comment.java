@@ -6,10 +6,11 @@ public final class Comment {
   private final long id;
   private final String text;
   private final long timestamp;
-  private final double sentiment_score;
+  // Null while the comment is waiting to be scored
+  private final Double sentiment_score;
   private final String user;
 
-  public Comment(long id, String text, long timestamp, double sentiment_score, String user) {
+  public Comment(long id, String text, long timestamp, Double sentiment_score, String user) {
     this.id = id;
     this.text = text;
     this.timestamp = timestamp;
@@ -0,0 +1,139 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.sentiment;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers recent sentiment scores so duplicate texts like "nice" or "great site!" skip the
+ * remote call.
+ *
+ * <p>Texts are normalized (trimmed, lower-cased, whitespace collapsed) and keyed by their SHA-256
+ * hash, so the cache holds a fixed amount of memory per entry however long the text is. Entries
+ * expire after a time to live and the least recently used one is evicted once the cache is full.
+ */
+public final class CachingSentimentAnalyzer implements SentimentAnalyzer {
+
+  private final SentimentAnalyzer delegate;
+  private final long ttlNanos;
+  private final LongSupplier nanoClock;
+  private final Map<String, CachedScore> scores;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public CachingSentimentAnalyzer(SentimentAnalyzer delegate, int maxSize, long ttlMillis) {
+    this(delegate, maxSize, ttlMillis, System::nanoTime);
+  }
+
+  CachingSentimentAnalyzer(
+      SentimentAnalyzer delegate, int maxSize, long ttlMillis, LongSupplier nanoClock) {
+    this.delegate = delegate;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    this.nanoClock = nanoClock;
+    // Access order makes the eldest entry the least recently used one
+    this.scores =
+        new LinkedHashMap<String, CachedScore>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, CachedScore> eldest) {
+            return size() > maxSize;
+          }
+        };
+  }
+
+  @Override
+  public float analyzeSentiment(String text) throws IOException {
+    String key = hash(normalize(text));
+    long now = nanoClock.getAsLong();
+    synchronized (scores) {
+      CachedScore cached = scores.get(key);
+      if (cached != null && now - cached.createdNanos < ttlNanos) {
+        hits.incrementAndGet();
+        return cached.score;
+      }
+    }
+
+    // The remote call is made outside the lock so other texts are not held up by it
+    misses.incrementAndGet();
+    float score = delegate.analyzeSentiment(text);
+    synchronized (scores) {
+      scores.put(key, new CachedScore(score, nanoClock.getAsLong()));
+    }
+    return score;
+  }
+
+  @Override
+  public boolean isHealthy() {
+    return delegate.isHealthy();
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  /** Returns how many calls were answered from the cache. */
+  public long hitCount() {
+    return hits.get();
+  }
+
+  /** Returns how many calls went to the wrapped analyzer. */
+  public long missCount() {
+    return misses.get();
+  }
+
+  /** Returns how many scores are cached, including expired ones that were not evicted yet. */
+  public int size() {
+    synchronized (scores) {
+      return scores.size();
+    }
+  }
+
+  /** Returns text with surrounding whitespace removed, lower-cased, and inner whitespace collapsed. */
+  static String normalize(String text) {
+    return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+  }
+
+  private static String hash(String text) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] hash = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(hash);
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** A score and when it was computed. */
+  private static final class CachedScore {
+    private final float score;
+    private final long createdNanos;
+
+    private CachedScore(float score, long createdNanos) {
+      this.score = score;
+      this.createdNanos = createdNanos;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.sentiment;
+
+import com.google.cloud.language.v1.Document;
+import com.google.cloud.language.v1.LanguageServiceClient;
+import com.google.cloud.language.v1.Sentiment;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sentiment analyzer backed by the Cloud Natural Language API.
+ *
+ * <p>A single LanguageServiceClient is shared by every caller, since the client is thread-safe and
+ * building one sets up gRPC channels and credentials. If the client is found shut down it is
+ * created again on the next call.
+ */
+public final class CloudSentimentAnalyzer implements SentimentAnalyzer {
+
+  // How long close() waits for calls that are still running
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+  private LanguageServiceClient client;
+  private boolean closed;
+
+  /** Creates the shared client now instead of on the first call. */
+  public void connect() throws IOException {
+    client();
+  }
+
+  @Override
+  public float analyzeSentiment(String text) throws IOException {
+    Document doc =
+        Document.newBuilder().setContent(text).setType(Document.Type.PLAIN_TEXT).build();
+    Sentiment sentiment = client().analyzeSentiment(doc).getDocumentSentiment();
+    return sentiment.getScore();
+  }
+
+  @Override
+  public synchronized boolean isHealthy() {
+    return !closed && client != null && !client.isShutdown() && !client.isTerminated();
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (client == null) {
+      return;
+    }
+    client.shutdown();
+    try {
+      client.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    client = null;
+  }
+
+  /** Returns the shared client, creating it if it does not exist yet or has been shut down. */
+  private synchronized LanguageServiceClient client() throws IOException {
+    if (closed) {
+      throw new IOException("Sentiment analyzer is closed");
+    }
+    if (client == null || client.isShutdown()) {
+      client = LanguageServiceClient.create();
+    }
+    return client;
+  }
+}
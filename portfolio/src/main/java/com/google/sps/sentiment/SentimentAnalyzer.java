@@ -0,0 +1,34 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.sentiment;
+
+import java.io.IOException;
+
+/**
+ * Scores how positive or negative a piece of text is. One analyzer is shared by every request
+ * thread, so implementations must be thread-safe.
+ */
+public interface SentimentAnalyzer extends AutoCloseable {
+
+  /** Returns the sentiment of text, from -1 (negative) to 1 (positive). */
+  float analyzeSentiment(String text) throws IOException;
+
+  /** Returns true if the analyzer can currently take requests. */
+  boolean isHealthy();
+
+  /** Releases the resources held by the analyzer. It cannot be used afterwards. */
+  @Override
+  void close();
+}
@@ -0,0 +1,218 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.sentiment;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.Query;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Scores comments in the background so posting a comment never waits on the sentiment analyzer.
+ *
+ * <p>Comments are saved with a null sentiment_score and their keys are queued here. A fixed pool
+ * of workers takes up to batchSize keys at a time, reads those comments in one Datastore call,
+ * scores them, and writes them back in one Datastore call. The scored comments are then handed
+ * to the onScored callback.
+ *
+ * <p>Comments that could not be scored, or did not fit in the queue, stay pending in Datastore.
+ * While the scorer runs, it looks for them every resumeMillis and queues them again. Workers stop
+ * calling the analyzer while it reports itself unhealthy, and try again with a growing delay.
+ */
+public final class SentimentScorer {
+
+  // How long workers wait before trying an unhealthy analyzer again, doubling up to the maximum
+  private static final long MIN_BACKOFF_MILLIS = 1000;
+  private static final long MAX_BACKOFF_MILLIS = 60 * 1000;
+
+  private final DatastoreService datastore;
+  private final SentimentAnalyzer analyzer;
+  private final int workerCount;
+  private final int batchSize;
+  private final long resumeMillis;
+  private final BlockingQueue<Key> pending;
+  // Keys that are in the queue or being scored, so resumePending() does not queue them twice
+  private final Set<Key> queued = ConcurrentHashMap.newKeySet();
+  private final Consumer<List<Entity>> onScored;
+  private ExecutorService workers;
+  private ScheduledExecutorService resumer;
+
+  public SentimentScorer(
+      DatastoreService datastore,
+      SentimentAnalyzer analyzer,
+      int workerCount,
+      int batchSize,
+      int queueCapacity,
+      long resumeMillis,
+      Consumer<List<Entity>> onScored) {
+    this.datastore = datastore;
+    this.analyzer = analyzer;
+    this.workerCount = workerCount;
+    this.batchSize = batchSize;
+    this.resumeMillis = resumeMillis;
+    this.pending = new ArrayBlockingQueue<>(queueCapacity);
+    this.onScored = onScored;
+  }
+
+  /** Starts the worker threads, and queues pending comments now and every resumeMillis. */
+  public synchronized void start() {
+    if (workers != null) {
+      return;
+    }
+    workers = Executors.newFixedThreadPool(workerCount);
+    for (int i = 0; i < workerCount; i++) {
+      workers.execute(this::scoreUntilInterrupted);
+    }
+    resumer =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "sentiment-resumer");
+              thread.setDaemon(true);
+              return thread;
+            });
+    resumer.scheduleWithFixedDelay(
+        this::resumePendingQuietly, 0, resumeMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /** Stops the worker threads. Comments still waiting in the queue stay pending in Datastore. */
+  public synchronized void shutdown() {
+    if (workers != null) {
+      workers.shutdownNow();
+      workers = null;
+      resumer.shutdownNow();
+      resumer = null;
+    }
+  }
+
+  /**
+   * Queues the comment with this key to be scored. Returns false if the queue is full, in which
+   * case the comment stays pending until {@link #resumePending()} picks it up again.
+   */
+  public boolean submit(Key key) {
+    if (!queued.add(key)) {
+      return true;
+    }
+    if (!pending.offer(key)) {
+      queued.remove(key);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Queues comments that were saved but never scored, for example because of a restart or because
+   * the analyzer failed. Comments that are already queued are skipped.
+   */
+  public void resumePending() {
+    int capacity = pending.remainingCapacity();
+    if (capacity == 0) {
+      return;
+    }
+    Query query =
+        new Query("Comment")
+            .setFilter(
+                new Query.FilterPredicate("sentiment_score", Query.FilterOperator.EQUAL, null))
+            .setKeysOnly();
+    FetchOptions fetchOptions = FetchOptions.Builder.withLimit(capacity);
+    for (Entity entity : datastore.prepare(query).asIterable(fetchOptions)) {
+      if (!submit(entity.getKey())) {
+        return;
+      }
+    }
+  }
+
+  /** Returns how many comments are waiting in the queue. */
+  public int pendingCount() {
+    return pending.size();
+  }
+
+  /** Runs resumePending() on the resumer thread, where an exception would stop later runs. */
+  private void resumePendingQuietly() {
+    try {
+      resumePending();
+    } catch (RuntimeException e) {
+      System.err.println("Could not look for pending comments: " + e);
+    }
+  }
+
+  private void scoreUntilInterrupted() {
+    long backoffMillis = 0;
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        if (analyzer.isHealthy()) {
+          backoffMillis = 0;
+        } else {
+          // Comments wait in the queue instead of failing one by one against a broken client
+          backoffMillis =
+              Math.min(Math.max(backoffMillis * 2, MIN_BACKOFF_MILLIS), MAX_BACKOFF_MILLIS);
+          System.err.println("Sentiment analyzer is unhealthy, waiting " + backoffMillis + " ms");
+          Thread.sleep(backoffMillis);
+        }
+        scoreNextBatch();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Waits for at least one queued comment, then scores it along with up to a batch more. */
+  void scoreNextBatch() throws InterruptedException {
+    List<Key> batch = new ArrayList<>(batchSize);
+    batch.add(pending.take());
+    pending.drainTo(batch, batchSize - 1);
+    try {
+      scoreBatch(batch);
+    } catch (RuntimeException e) {
+      System.err.println("Could not score " + batch.size() + " comments: " + e);
+    } finally {
+      queued.removeAll(batch);
+    }
+  }
+
+  private void scoreBatch(List<Key> keys) {
+    List<Entity> scored = new ArrayList<>(keys.size());
+    for (Entity comment : datastore.get(keys).values()) {
+      // Queries for pending comments can lag behind, so one may have been scored already
+      if (comment.getProperty("sentiment_score") != null) {
+        continue;
+      }
+      String text = (String) comment.getProperty("text-input");
+      try {
+        // Stored as a double, the type Datastore reads floating point numbers back as
+        double score = analyzer.analyzeSentiment(text);
+        comment.setProperty("sentiment_score", score);
+        scored.add(comment);
+      } catch (IOException | RuntimeException e) {
+        // The comment stays pending and is queued again by the next resumePending()
+        System.err.println("Could not score comment " + comment.getKey() + ": " + e);
+      }
+    }
+    datastore.put(scored);
+    onScored.accept(scored);
+  }
+}
@@ -14,24 +14,25 @@
 
 package com.google.sps.servlets;
 
+import com.google.appengine.api.datastore.Cursor;
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
 import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
 import com.google.appengine.api.datastore.PreparedQuery;
 import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.QueryResultIterator;
 import com.google.appengine.api.datastore.Query.SortDirection;
 import java.io.IOException;
-import com.google.sps.data.Comment;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.ArrayList;
-import java.util.Arrays;
-import com.google.gson.Gson;
-import com.google.cloud.language.v1.Document;
-import com.google.cloud.language.v1.LanguageServiceClient;
-import com.google.cloud.language.v1.Sentiment;
+import com.google.sps.comments.CommentFeed;
+import com.google.sps.sentiment.SentimentAnalyzerListener;
+import com.google.sps.sentiment.SentimentScorer;
+import com.google.sps.users.NicknameService;
 
 import com.google.appengine.api.datastore.*;
 import com.google.appengine.api.users.UserService;
@@ -42,32 +43,85 @@ import java.io.PrintWriter;
 @WebServlet("/data")
 public class DataServlet extends HttpServlet {
 
+  // Number of comments sent per page when the client does not ask for a size
+  private static final int DEFAULT_PAGE_SIZE = 20;
+  // Largest page a client can ask for
+  private static final int MAX_PAGE_SIZE = 100;
+
+  // Background sentiment scoring: worker threads, comments scored per batch, and queue size
+  private static final int SCORER_WORKERS = 2;
+  private static final int SCORER_BATCH_SIZE = 10;
+  private static final int SCORER_QUEUE_CAPACITY = 1000;
+  // How often comments that are still pending are queued again
+  private static final long SCORER_RESUME_MILLIS = 5 * 60 * 1000;
+
+  // How long the in-memory first page is served before it is read again from Datastore
+  private static final long FEED_MAX_AGE_MILLIS = 60 * 1000;
+
+  // Scores comment sentiment off the request thread
+  private SentimentScorer scorer;
+  // Serialized first page of the comment feed
+  private CommentFeed feed;
+
+  @Override
+  public void init() {
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    feed = new CommentFeed(datastore, DEFAULT_PAGE_SIZE, FEED_MAX_AGE_MILLIS);
+    scorer =
+        new SentimentScorer(
+            datastore,
+            SentimentAnalyzerListener.getAnalyzer(getServletContext()),
+            SCORER_WORKERS,
+            SCORER_BATCH_SIZE,
+            SCORER_QUEUE_CAPACITY,
+            SCORER_RESUME_MILLIS,
+            // Scored comments replace their pending versions in the first page
+            feed::update);
+    scorer.start();
+  }
+
+  @Override
+  public void destroy() {
+    scorer.shutdown();
+  }
+
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
 
+    // The first page is what almost every visitor reads, so it is served from memory
+    int pageSize = getPageSize(request);
+    String startCursor = request.getParameter("cursor");
+    if ((startCursor == null || startCursor.isEmpty()) && pageSize == DEFAULT_PAGE_SIZE) {
+      serveFirstPage(request, response);
+      return;
+    }
+
+    // Only read one page of comments, starting where the previous page stopped
+    FetchOptions fetchOptions = FetchOptions.Builder.withLimit(pageSize);
+    if (startCursor != null && !startCursor.isEmpty()) {
+      try {
+        fetchOptions.startCursor(Cursor.fromWebSafeString(startCursor));
+      } catch (IllegalArgumentException e) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid cursor: " + startCursor);
+        return;
+      }
+    }
+
     // Get comments from Datastore
     Query query = new Query("Comment").addSort("timestamp", SortDirection.DESCENDING);
     DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
     PreparedQuery results = datastore.prepare(query);
+    QueryResultIterator<Entity> iterator = results.asQueryResultIterator(fetchOptions);
 
-    // Add comment properties in an ArrayList
-    ArrayList<Comment> comments = new ArrayList<>();
-    for (Entity entity : results.asIterable()) {
-      long id = entity.getKey().getId();
-      String text = (String) entity.getProperty("text-input");
-      long timestamp = (long) entity.getProperty("timestamp");
-      double score = (double) entity.getProperty("sentiment_score");
-      String user = (String) entity.getProperty("user");
-
-      comments.add(new Comment(id, text, timestamp, score, user));
-    }
-    // Converts to JSON and responds
+    // Writes each comment to the response as it is read instead of building the whole list
     response.setContentType("application/json;");
-    Gson gson = new Gson();
-    response.getWriter().println(gson.toJson(comments));
+    CommentFeed.writePage(
+        iterator,
+        // A short page means there is nothing left to read, so no cursor is sent back
+        count -> count == pageSize ? iterator.getCursor().toWebSafeString() : null,
+        response.getWriter());
   }
 
-
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
 
@@ -77,50 +131,78 @@ public class DataServlet extends HttpServlet {
 
     UserService userService = UserServiceFactory.getUserService();
 
-    String user = getUserNickname(userService.getCurrentUser().getUserId());
+    String user =
+        NicknameService.get(getServletContext())
+            .getNickname(userService.getCurrentUser().getUserId());
     
     // Create new Entity for Datastore
     Entity comEntity = new Entity("Comment");
     comEntity.setProperty("text-input", text);
     comEntity.setProperty("timestamp", timestamp);
   
-    // Sentiment analizer for comments
-    Document doc =
-    Document.newBuilder().setContent(text).setType(Document.Type.PLAIN_TEXT).build();
-    LanguageServiceClient languageService = LanguageServiceClient.create();
-    Sentiment sentiment = languageService.analyzeSentiment(doc).getDocumentSentiment();
-    float score = sentiment.getScore();
-    languageService.close();
-
-    comEntity.setProperty("sentiment_score", score);
+    // The comment is saved right away and its sentiment is scored in the background
+    comEntity.setProperty("sentiment_score", null);
     comEntity.setProperty("user", user);
 
     DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-    datastore.put(comEntity);
+    Key key = datastore.put(comEntity);
+    feed.add(comEntity);
+    if (!scorer.submit(key)) {
+      System.err.println("Sentiment queue is full, comment stays pending: " + key);
+    }
     
     // Redirect back to the HTML page.
     response.sendRedirect("/about/about.html");
   }
 
 
+  /* Writes the first page from the in-memory feed, or nothing if the client already has it */
+  private void serveFirstPage(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    CommentFeed.Snapshot page = feed.get();
+    boolean gzip = GzipFilter.acceptsGzip(request);
+    // Each encoding of the page is a different representation, so it gets its own ETag
+    String etag = gzip ? page.getGzippedEtag() : page.getEtag();
+
+    response.setContentType("application/json;");
+    if (HttpCaching.notModified(
+        request, response, etag, page.getModifiedMillis(), HttpCaching.NO_CACHE)) {
+      return;
+    }
+
+    // The page is already compressed, so GzipFilter passes it through as is
+    byte[] body = page.getJson();
+    if (gzip) {
+      response.setHeader("Content-Encoding", "gzip");
+      body = page.getGzippedJson();
+    }
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+
+  /* Returns the requested page size, or the default one if it is missing or invalid */
+  private int getPageSize(HttpServletRequest request) {
+    String pageSizeString = request.getParameter("limit");
+    if (pageSizeString == null) {
+      return DEFAULT_PAGE_SIZE;
+    }
+
+    int pageSize;
+    try {
+      pageSize = Integer.parseInt(pageSizeString);
+    } catch (NumberFormatException e) {
+      System.err.println("Could not convert to int: " + pageSizeString);
+      return DEFAULT_PAGE_SIZE;
+    }
+    if (pageSize < 1) {
+      return DEFAULT_PAGE_SIZE;
+    }
+    return Math.min(pageSize, MAX_PAGE_SIZE);
+  }
+
   /* @return the request parameter and trims whitespace */
   private String getComment(HttpServletRequest request, String name) {
     String value = request.getParameter(name);
     return value.trim();
   }
-
-/* Returns the nickname of the user with id, or null if the user has not set a nickname */
-  private String getUserNickname(String id) {
-    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-    Query query =
-      new Query("UserInfo")
-        .setFilter(new Query.FilterPredicate("id", Query.FilterOperator.EQUAL, id));
-    PreparedQuery results = datastore.prepare(query);
-    Entity entity = results.asSingleEntity();
-    if (entity == null) {
-      return null;
-    }
-    String nickname = (String) entity.getProperty("nickname");
-    return nickname;
-  }
 }
@@ -0,0 +1,280 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Gzips responses for clients that accept it, compressing the body as it is written.
+ *
+ * <p>A servlet that already has its body compressed, for example because it compressed it once in
+ * init(), sets the Content-Encoding header before writing and the filter passes its bytes through
+ * untouched. So does a servlet that sets a WriteListener before writing, since non-blocking writes
+ * cannot go through a GZIPOutputStream.
+ */
+@WebFilter(urlPatterns = "/data", asyncSupported = true)
+public class GzipFilter implements Filter {
+
+  @Override
+  public void init(FilterConfig filterConfig) {}
+
+  @Override
+  public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+      throws IOException, ServletException {
+    HttpServletRequest httpRequest = (HttpServletRequest) request;
+    HttpServletResponse httpResponse = (HttpServletResponse) response;
+    // Caches must keep a separate copy for each encoding
+    httpResponse.setHeader("Vary", "Accept-Encoding");
+    if (!acceptsGzip(httpRequest)) {
+      chain.doFilter(request, response);
+      return;
+    }
+
+    GzipResponse gzipResponse = new GzipResponse(httpResponse);
+    try {
+      chain.doFilter(request, gzipResponse);
+    } finally {
+      gzipResponse.finish();
+    }
+  }
+
+  @Override
+  public void destroy() {}
+
+  /** Returns true if the Accept-Encoding header of request allows a gzipped response. */
+  static boolean acceptsGzip(HttpServletRequest request) {
+    String acceptEncoding = request.getHeader("Accept-Encoding");
+    if (acceptEncoding == null) {
+      return false;
+    }
+    // Walks the comma separated list in place so no strings are created per request
+    int start = 0;
+    while (start < acceptEncoding.length()) {
+      int end = acceptEncoding.indexOf(',', start);
+      if (end < 0) {
+        end = acceptEncoding.length();
+      }
+      int nameEnd = acceptEncoding.indexOf(';', start);
+      if (nameEnd < 0 || nameEnd > end) {
+        nameEnd = end;
+      }
+      if (isGzipCoding(acceptEncoding, start, nameEnd)) {
+        // A quality of 0 means the client refuses that encoding
+        return !hasZeroQuality(acceptEncoding, nameEnd, end);
+      }
+      start = end + 1;
+    }
+    return false;
+  }
+
+  /** Returns true if header[start, end) names gzip, x-gzip or any encoding, ignoring spaces. */
+  private static boolean isGzipCoding(String header, int start, int end) {
+    while (start < end && header.charAt(start) == ' ') {
+      start++;
+    }
+    while (end > start && header.charAt(end - 1) == ' ') {
+      end--;
+    }
+    int length = end - start;
+    return (length == 4 && header.regionMatches(true, start, "gzip", 0, 4))
+        || (length == 6 && header.regionMatches(true, start, "x-gzip", 0, 6))
+        || (length == 1 && header.charAt(start) == '*');
+  }
+
+  /** Returns true if the parameters in header[start, end) set the quality to 0. */
+  private static boolean hasZeroQuality(String header, int start, int end) {
+    int q = header.indexOf("q=", start);
+    if (q < 0 || q >= end) {
+      return false;
+    }
+    int i = q + 2;
+    if (i >= end || header.charAt(i) != '0') {
+      return false;
+    }
+    i++;
+    if (i < end && header.charAt(i) == '.') {
+      i++;
+    }
+    while (i < end && header.charAt(i) == '0') {
+      i++;
+    }
+    return i == end || header.charAt(i) == ' ' || header.charAt(i) == ';';
+  }
+
+  /** Returns data compressed with gzip. */
+  static byte[] gzip(byte[] data) {
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+      gzip.write(data);
+    } catch (IOException e) {
+      // Only an in-memory stream is written to, so this cannot happen
+      throw new IllegalStateException(e);
+    }
+    return gzipped.toByteArray();
+  }
+
+  /**
+   * Compresses what the servlet writes. Nothing is compressed until the first byte is written, so
+   * empty responses like 304 stay empty.
+   */
+  private static final class GzipResponse extends HttpServletResponseWrapper {
+    private final HttpServletResponse response;
+    private boolean passThrough;
+    private ServletOutputStream outputStream;
+    private GZIPOutputStream gzip;
+    private PrintWriter writer;
+
+    private GzipResponse(HttpServletResponse response) {
+      super(response);
+      this.response = response;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+      passThrough |= name.equalsIgnoreCase("Content-Encoding");
+      super.setHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+      passThrough |= name.equalsIgnoreCase("Content-Encoding");
+      super.addHeader(name, value);
+    }
+
+    @Override
+    public void setContentLength(int length) {
+      // The length of a body compressed here is not known in advance
+      if (passThrough) {
+        super.setContentLength(length);
+      }
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+      if (passThrough) {
+        super.setContentLengthLong(length);
+      }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      if (outputStream == null) {
+        outputStream = new GzipOutputStream(response.getOutputStream());
+      }
+      return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      if (writer == null) {
+        writer =
+            new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+      }
+      return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      if (writer != null) {
+        writer.flush();
+      }
+      if (gzip != null) {
+        gzip.flush();
+      }
+      super.flushBuffer();
+    }
+
+    /** Writes what is left of the compressed body. */
+    private void finish() throws IOException {
+      if (writer != null) {
+        writer.flush();
+      }
+      if (gzip != null) {
+        gzip.finish();
+      }
+    }
+
+    /** Returns the stream to write the body to, deciding on the first write whether to compress. */
+    private OutputStream target() throws IOException {
+      if (passThrough) {
+        return response.getOutputStream();
+      }
+      if (gzip == null) {
+        response.setHeader("Content-Encoding", "gzip");
+        // Sync flush lets a servlet that flushes push what it wrote so far to the client
+        gzip = new GZIPOutputStream(response.getOutputStream(), true);
+      }
+      return gzip;
+    }
+
+    /** Output stream handed to the servlet. */
+    private final class GzipOutputStream extends ServletOutputStream {
+      private final ServletOutputStream out;
+
+      private GzipOutputStream(ServletOutputStream out) {
+        this.out = out;
+      }
+
+      @Override
+      public void write(int b) throws IOException {
+        target().write(b);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        target().write(b, off, len);
+      }
+
+      @Override
+      public void flush() throws IOException {
+        if (passThrough || gzip != null) {
+          target().flush();
+        }
+      }
+
+      @Override
+      public boolean isReady() {
+        // Writes that are compressed here block, so they are always ready
+        return !passThrough || out.isReady();
+      }
+
+      @Override
+      public void setWriteListener(WriteListener writeListener) {
+        if (gzip != null) {
+          throw new IllegalStateException("The body is already being compressed");
+        }
+        passThrough = true;
+        out.setWriteListener(writeListener);
+      }
+    }
+  }
+}
@@ -0,0 +1,128 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/** Lets servlets answer conditional GET requests with 304 Not Modified instead of a full body. */
+public final class HttpCaching {
+
+  /** Clients must check with the server before reusing their copy. */
+  static final String NO_CACHE = "no-cache";
+
+  private HttpCaching() {}
+
+  /** Returns a strong ETag, quotes included, made from the SHA-256 hash of content. */
+  public static String etag(byte[] content) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+      StringBuilder etag = new StringBuilder("\"");
+      // Half of the hash is plenty to tell two versions apart
+      for (int i = 0; i < hash.length / 2; i++) {
+        etag.append(String.format("%02x", hash[i]));
+      }
+      return etag.append('"').toString();
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Returns a strong ETag, quotes included, made from the SHA-256 hash of content. */
+  public static String etag(String content) {
+    return etag(content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Sets the ETag, Last-Modified and Cache-Control headers, then checks whether the client already
+   * has this version. If it does, a 304 response is sent and true is returned, so the caller must
+   * not write a body. Pass a negative lastModifiedMillis when the modification time is unknown.
+   */
+  static boolean notModified(
+      HttpServletRequest request,
+      HttpServletResponse response,
+      String etag,
+      long lastModifiedMillis,
+      String cacheControl) {
+    response.setHeader("ETag", etag);
+    if (lastModifiedMillis >= 0) {
+      response.setDateHeader("Last-Modified", lastModifiedMillis);
+    }
+    response.setHeader("Cache-Control", cacheControl);
+
+    boolean notModified;
+    String ifNoneMatch = request.getHeader("If-None-Match");
+    if (ifNoneMatch != null) {
+      // If-None-Match takes precedence over If-Modified-Since when both are sent
+      notModified = matches(ifNoneMatch, etag);
+    } else {
+      notModified = lastModifiedMillis >= 0 && notModifiedSince(request, lastModifiedMillis);
+    }
+    if (notModified) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+    return notModified;
+  }
+
+  /**
+   * Returns true if the If-None-Match header lists etag or is "*". Tags are compared weakly, so
+   * W/"x" matches "x".
+   */
+  private static boolean matches(String ifNoneMatch, String etag) {
+    // Walks the comma separated list in place so no strings are created per request
+    int start = 0;
+    while (start <= ifNoneMatch.length()) {
+      int end = ifNoneMatch.indexOf(',', start);
+      if (end < 0) {
+        end = ifNoneMatch.length();
+      }
+      int tokenStart = start;
+      int tokenEnd = end;
+      while (tokenStart < tokenEnd && ifNoneMatch.charAt(tokenStart) == ' ') {
+        tokenStart++;
+      }
+      while (tokenEnd > tokenStart && ifNoneMatch.charAt(tokenEnd - 1) == ' ') {
+        tokenEnd--;
+      }
+      if (ifNoneMatch.startsWith("W/", tokenStart)) {
+        tokenStart += 2;
+      }
+      int length = tokenEnd - tokenStart;
+      if ((length == 1 && ifNoneMatch.charAt(tokenStart) == '*')
+          || (length == etag.length() && ifNoneMatch.startsWith(etag, tokenStart))) {
+        return true;
+      }
+      start = end + 1;
+    }
+    return false;
+  }
+
+  /** Returns true if If-Modified-Since is not older than lastModifiedMillis. */
+  private static boolean notModifiedSince(HttpServletRequest request, long lastModifiedMillis) {
+    long ifModifiedSince;
+    try {
+      ifModifiedSince = request.getDateHeader("If-Modified-Since");
+    } catch (IllegalArgumentException e) {
+      // A date that cannot be parsed is ignored
+      return false;
+    }
+    // HTTP dates only have second precision
+    return ifModifiedSince >= 0 && lastModifiedMillis / 1000 <= ifModifiedSince / 1000;
+  }
+}
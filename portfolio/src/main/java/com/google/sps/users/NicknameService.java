@@ -0,0 +1,135 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.users;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.KeyFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.servlet.ServletContext;
+
+/**
+ * Reads and writes user nicknames.
+ *
+ * <p>UserInfo entities are keyed by user id, so a nickname is read with a direct key lookup
+ * instead of a query. Recently used nicknames are kept in a bounded in-memory cache that setNickname
+ * writes through to. Other instances cannot tell this one about the nicknames they save, so cached
+ * nicknames expire after a short time to live, and users without a nickname are not cached at all.
+ */
+public final class NicknameService {
+
+  private static final String SERVICE_ATTRIBUTE = NicknameService.class.getName();
+
+  // Most users whose nickname is cached at once
+  private static final int CACHE_SIZE = 10000;
+  // Longest a nickname changed on another instance is shown stale on this one
+  private static final long CACHE_TTL_MILLIS = 30 * 1000;
+
+  private final DatastoreService datastore;
+  private final long ttlNanos;
+  private final LongSupplier nanoClock;
+  private final Map<String, CachedNickname> nicknames;
+
+  /** Returns the nickname service shared by every servlet in context. */
+  public static NicknameService get(ServletContext context) {
+    synchronized (context) {
+      NicknameService service = (NicknameService) context.getAttribute(SERVICE_ATTRIBUTE);
+      if (service == null) {
+        service = new NicknameService(
+                DatastoreServiceFactory.getDatastoreService(), CACHE_SIZE, CACHE_TTL_MILLIS);
+        context.setAttribute(SERVICE_ATTRIBUTE, service);
+      }
+      return service;
+    }
+  }
+
+  public NicknameService(DatastoreService datastore, int maxSize, long ttlMillis) {
+    this(datastore, maxSize, ttlMillis, System::nanoTime);
+  }
+
+  NicknameService(
+      DatastoreService datastore, int maxSize, long ttlMillis, LongSupplier nanoClock) {
+    this.datastore = datastore;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    this.nanoClock = nanoClock;
+    // Access order makes the eldest entry the least recently used one
+    this.nicknames =
+        new LinkedHashMap<String, CachedNickname>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, CachedNickname> eldest) {
+            return size() > maxSize;
+          }
+        };
+  }
+
+  /** Returns the nickname of the user with id, or null if the user has not set a nickname. */
+  public String getNickname(String id) {
+    long now = nanoClock.getAsLong();
+    synchronized (nicknames) {
+      CachedNickname cached = nicknames.get(id);
+      if (cached != null && now - cached.createdNanos < ttlNanos) {
+        return cached.nickname;
+      }
+    }
+
+    String nickname;
+    try {
+      Entity entity = datastore.get(KeyFactory.createKey("UserInfo", id));
+      nickname = (String) entity.getProperty("nickname");
+    } catch (EntityNotFoundException e) {
+      nickname = null;
+    }
+    if (nickname == null) {
+      return null;
+    }
+    synchronized (nicknames) {
+      // A nickname saved while this one was being read is newer, so it wins
+      CachedNickname cached = nicknames.get(id);
+      if (cached != null && cached.createdNanos >= now) {
+        return cached.nickname;
+      }
+      nicknames.put(id, new CachedNickname(nickname, nanoClock.getAsLong()));
+    }
+    return nickname;
+  }
+
+  /** Saves the nickname of the user with id and updates the cache. */
+  public void setNickname(String id, String nickname) {
+    Entity entity = new Entity("UserInfo", id);
+    entity.setProperty("id", id);
+    entity.setProperty("nickname", nickname);
+    // The put() function automatically inserts new data or updates existing data based on ID
+    datastore.put(entity);
+    synchronized (nicknames) {
+      nicknames.put(id, new CachedNickname(nickname, nanoClock.getAsLong()));
+    }
+  }
+
+  /** A nickname and when it was read or saved. */
+  private static final class CachedNickname {
+    private final String nickname;
+    private final long createdNanos;
+
+    private CachedNickname(String nickname, long createdNanos) {
+      this.nickname = nickname;
+      this.createdNanos = createdNanos;
+    }
+  }
+}
@@ -19,21 +19,30 @@ const input = document.getElementById('text-input');
 const login = document.getElementById('login');
 const commentHistory = document.getElementById('history');
 
-/* Loading comments from server and displaying them */
+/* Loading comments from server page by page and displaying them */
 async function loadComments() {
-  const response = await fetch('/data'); 
-  const comments = await response.json();
-  
-  comments.forEach((comment) => {
-    commentHistory.appendChild(createCommentElement(comment));
-    if (comment.sentiment_score < 0) 
-    console.log('Negative comment: '+ comment.text + '\n' +  'Sentimental Score: ' + comment.sentiment_score);
-    else if(comment.sentiment_score > 0) 
-    console.log('Positive comment: '+ comment.text + '\n' +  'Sentimental Score: ' + comment.sentiment_score);
-    else 
-    console.log('Neutral comment: '+ comment.text + '\n' +  'Sentimental Score: ' + comment.sentiment_score);
-    console.log('Comment posted by: ' + comment.user);
-  })
+  let cursor = '';
+  do {
+    const response = await fetch('/data?cursor=' + encodeURIComponent(cursor));
+    const page = await response.json();
+    page.comments.forEach(logComment);
+    cursor = page.cursor;
+  } while (cursor);
+}
+
+/* Displays a single comment and logs its sentiment */
+function logComment(comment) {
+  commentHistory.appendChild(createCommentElement(comment));
+  // Comments that are still being scored come without a sentiment_score
+  if (comment.sentiment_score === undefined)
+  console.log('Pending comment: '+ comment.text + '\n' +  'Sentimental Score: not scored yet');
+  else if (comment.sentiment_score < 0) 
+  console.log('Negative comment: '+ comment.text + '\n' +  'Sentimental Score: ' + comment.sentiment_score);
+  else if(comment.sentiment_score > 0) 
+  console.log('Positive comment: '+ comment.text + '\n' +  'Sentimental Score: ' + comment.sentiment_score);
+  else 
+  console.log('Neutral comment: '+ comment.text + '\n' +  'Sentimental Score: ' + comment.sentiment_score);
+  console.log('Comment posted by: ' + comment.user);
 }
 
 /* Creates an element that represents a comment */
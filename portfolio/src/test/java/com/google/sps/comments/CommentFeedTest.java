@@ -0,0 +1,181 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.comments;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests the in-memory first page of the comment feed against a local Datastore. */
+@RunWith(JUnit4.class)
+public final class CommentFeedTest {
+  private static final int PAGE_SIZE = 2;
+  private static final long MAX_AGE_MILLIS = 1000;
+
+  private final LocalServiceTestHelper helper =
+      new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+  private DatastoreService datastore;
+  private long now;
+  private CommentFeed feed;
+
+  @Before
+  public void setUp() {
+    helper.setUp();
+    datastore = DatastoreServiceFactory.getDatastoreService();
+    now = 0;
+    feed = new CommentFeed(datastore, PAGE_SIZE, MAX_AGE_MILLIS, () -> now);
+  }
+
+  @After
+  public void tearDown() {
+    helper.tearDown();
+  }
+
+  @Test
+  public void firstPageHoldsNewestComments() {
+    putComment("first", 1);
+    putComment("second", 2);
+    putComment("third", 3);
+
+    JsonObject page = parse(feed.get().getJson());
+
+    Assert.assertEquals(Arrays.asList("third", "second"), texts(page));
+    Assert.assertFalse(page.get("cursor").isJsonNull());
+  }
+
+  @Test
+  public void shortPageHasNoCursor() {
+    putComment("only", 1);
+
+    JsonObject page = parse(feed.get().getJson());
+
+    Assert.assertTrue(page.get("cursor").isJsonNull());
+  }
+
+  @Test
+  public void addedCommentGoesOnTopWithoutChangingTheCursor() {
+    putComment("first", 1);
+    putComment("second", 2);
+    CommentFeed.Snapshot before = feed.get();
+
+    feed.add(putComment("new", 3));
+    CommentFeed.Snapshot after = feed.get();
+
+    JsonObject page = parse(after.getJson());
+    Assert.assertEquals(Arrays.asList("new", "second", "first"), texts(page));
+    Assert.assertEquals(parse(before.getJson()).get("cursor"), page.get("cursor"));
+    Assert.assertTrue(after.getVersion() > before.getVersion());
+    Assert.assertNotEquals(before.getEtag(), after.getEtag());
+  }
+
+  @Test
+  public void commentAlreadyReadFromDatastoreIsNotAddedTwice() {
+    putComment("first", 1);
+    feed.get();
+    Entity comment = putComment("new", 2);
+
+    // The page is read again after the comment was saved but before it is added
+    now += MAX_AGE_MILLIS;
+    feed.get();
+    feed.add(comment);
+
+    Assert.assertEquals(Arrays.asList("new", "first"), texts(parse(feed.get().getJson())));
+  }
+
+  @Test
+  public void scoredCommentReplacesPendingVersion() {
+    Entity comment = putComment("pending", 1);
+    feed.get();
+
+    comment.setProperty("sentiment_score", 0.5);
+    datastore.put(comment);
+    feed.update(Arrays.asList(comment));
+
+    JsonArray comments = parse(feed.get().getJson()).getAsJsonArray("comments");
+    JsonObject first = comments.get(0).getAsJsonObject();
+    Assert.assertEquals(0.5, first.get("sentiment_score").getAsDouble(), 0);
+  }
+
+  @Test
+  public void pageIsReadAgainOnceTooOld() {
+    putComment("first", 1);
+    CommentFeed.Snapshot before = feed.get();
+
+    // Written directly to Datastore, like another instance would
+    putComment("second", 2);
+    Assert.assertSame(before, feed.get());
+
+    now += MAX_AGE_MILLIS;
+    Assert.assertEquals(Arrays.asList("second", "first"), texts(parse(feed.get().getJson())));
+  }
+
+  @Test
+  public void gzippedPageMatchesJson() throws Exception {
+    putComment("first", 1);
+    CommentFeed.Snapshot snapshot = feed.get();
+
+    InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(snapshot.getGzippedJson()));
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    for (int read = gzip.read(buffer); read != -1; read = gzip.read(buffer)) {
+      json.write(buffer, 0, read);
+    }
+
+    Assert.assertArrayEquals(snapshot.getJson(), json.toByteArray());
+  }
+
+  private Entity putComment(String text, long timestamp) {
+    Entity comment = new Entity("Comment");
+    comment.setProperty("text-input", text);
+    comment.setProperty("timestamp", timestamp);
+    comment.setProperty("sentiment_score", null);
+    comment.setProperty("user", "Dan");
+    datastore.put(comment);
+    return comment;
+  }
+
+  private static JsonObject parse(byte[] json) {
+    return JsonParser.parseString(new String(json, StandardCharsets.UTF_8)).getAsJsonObject();
+  }
+
+  private static List<String> texts(JsonObject page) {
+    List<String> texts = new ArrayList<>();
+    JsonArray comments = page.getAsJsonArray("comments");
+    for (int i = 0; i < comments.size(); i++) {
+      texts.add(comments.get(i).getAsJsonObject().get("text").getAsString());
+    }
+    return texts;
+  }
+}
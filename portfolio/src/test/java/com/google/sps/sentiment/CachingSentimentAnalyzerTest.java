@@ -0,0 +1,108 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.sentiment;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests the sentiment cache with a fake analyzer and a manual clock. */
+@RunWith(JUnit4.class)
+public final class CachingSentimentAnalyzerTest {
+  private static final int MAX_SIZE = 2;
+  private static final long TTL_MILLIS = 1000;
+
+  private FakeSentimentAnalyzer delegate;
+  private long nanoTime;
+  private CachingSentimentAnalyzer cache;
+
+  @Before
+  public void setUp() {
+    delegate = new FakeSentimentAnalyzer().withScore("nice", 0.7f).withScore("great site!", 0.9f);
+    nanoTime = 0;
+    cache = new CachingSentimentAnalyzer(delegate, MAX_SIZE, TTL_MILLIS, () -> nanoTime);
+  }
+
+  @Test
+  public void repeatedTextSkipsAnalyzer() throws Exception {
+    Assert.assertEquals(0.7f, cache.analyzeSentiment("nice"), 0f);
+    Assert.assertEquals(0.7f, cache.analyzeSentiment("nice"), 0f);
+
+    Assert.assertEquals(1, delegate.calls());
+    Assert.assertEquals(1, cache.hitCount());
+    Assert.assertEquals(1, cache.missCount());
+  }
+
+  @Test
+  public void normalizedDuplicatesShareAnEntry() throws Exception {
+    cache.analyzeSentiment("great site!");
+    cache.analyzeSentiment("  Great   SITE! ");
+
+    Assert.assertEquals(1, delegate.calls());
+    Assert.assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void expiredScoreIsAnalyzedAgain() throws Exception {
+    cache.analyzeSentiment("nice");
+    nanoTime += TimeUnit.MILLISECONDS.toNanos(TTL_MILLIS);
+    cache.analyzeSentiment("nice");
+
+    Assert.assertEquals(2, delegate.calls());
+    Assert.assertEquals(0, cache.hitCount());
+  }
+
+  @Test
+  public void leastRecentlyUsedScoreIsEvicted() throws Exception {
+    cache.analyzeSentiment("nice");
+    cache.analyzeSentiment("great site!");
+    // Using "nice" again makes "great site!" the least recently used entry
+    cache.analyzeSentiment("nice");
+    cache.analyzeSentiment("meh");
+
+    cache.analyzeSentiment("nice");
+    cache.analyzeSentiment("great site!");
+
+    Assert.assertEquals(MAX_SIZE, cache.size());
+    Assert.assertEquals(4, delegate.calls());
+  }
+
+  @Test
+  public void duplicateHeavyWorkloadCallsAnalyzerOncePerText() throws Exception {
+    String[] texts = {"nice", "great site!", "Nice", "NICE ", "great  site!"};
+    for (int i = 0; i < 1000; i++) {
+      cache.analyzeSentiment(texts[i % texts.length]);
+    }
+
+    Assert.assertEquals(2, delegate.calls());
+    Assert.assertEquals(998, cache.hitCount());
+  }
+
+  @Test
+  public void failedCallIsNotCached() throws Exception {
+    try {
+      cache.analyzeSentiment("fail");
+      Assert.fail();
+    } catch (IOException expected) {
+      // The fake analyzer fails on this text
+    }
+
+    Assert.assertEquals(0, cache.size());
+  }
+}
@@ -0,0 +1,55 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.sentiment;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Local analyzer for tests that returns fixed scores and counts how often it was called. */
+final class FakeSentimentAnalyzer implements SentimentAnalyzer {
+
+  private final Map<String, Float> scores = new HashMap<>();
+  private final AtomicInteger calls = new AtomicInteger();
+
+  /** Makes the analyzer return score for text. Unknown texts score 0. */
+  FakeSentimentAnalyzer withScore(String text, float score) {
+    scores.put(text, score);
+    return this;
+  }
+
+  @Override
+  public float analyzeSentiment(String text) throws IOException {
+    calls.incrementAndGet();
+    if (text.equals("fail")) {
+      throw new IOException("Fake failure");
+    }
+    return scores.getOrDefault(text, 0f);
+  }
+
+  @Override
+  public boolean isHealthy() {
+    return true;
+  }
+
+  @Override
+  public void close() {}
+
+  /** Returns how many times analyzeSentiment was called. */
+  int calls() {
+    return calls.get();
+  }
+}
@@ -0,0 +1,167 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.sentiment;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests the background sentiment scorer against a local Datastore and a fake analyzer. */
+@RunWith(JUnit4.class)
+public final class SentimentScorerTest {
+  private static final int BATCH_SIZE = 2;
+  private static final int QUEUE_CAPACITY = 3;
+  private static final long RESUME_MILLIS = 60 * 1000;
+
+  private final LocalServiceTestHelper helper =
+      new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+  private DatastoreService datastore;
+  private FakeSentimentAnalyzer analyzer;
+  private SentimentScorer scorer;
+  private int scoredCount;
+
+  @Before
+  public void setUp() {
+    helper.setUp();
+    datastore = DatastoreServiceFactory.getDatastoreService();
+    analyzer = new FakeSentimentAnalyzer().withScore("great", 0.9f).withScore("bad", -0.8f);
+    // Workers are never started, so the tests drive every batch from the test thread
+    scorer =
+        new SentimentScorer(
+            datastore,
+            analyzer,
+            1,
+            BATCH_SIZE,
+            QUEUE_CAPACITY,
+            RESUME_MILLIS,
+            scored -> scoredCount += scored.size());
+  }
+
+  @After
+  public void tearDown() {
+    helper.tearDown();
+  }
+
+  @Test
+  public void scoresQueuedComments() throws Exception {
+    Key great = putPendingComment("great");
+    Key bad = putPendingComment("bad");
+    scorer.submit(great);
+    scorer.submit(bad);
+
+    scorer.scoreNextBatch();
+
+    Assert.assertEquals(0.9, getScore(great), 1e-6);
+    Assert.assertEquals(-0.8, getScore(bad), 1e-6);
+    Assert.assertEquals(0, scorer.pendingCount());
+    Assert.assertEquals(2, scoredCount);
+  }
+
+  @Test
+  public void batchIsLimitedToBatchSize() throws Exception {
+    Key first = putPendingComment("great");
+    Key second = putPendingComment("great");
+    Key third = putPendingComment("great");
+    scorer.submit(first);
+    scorer.submit(second);
+    scorer.submit(third);
+
+    scorer.scoreNextBatch();
+
+    Assert.assertEquals(2, analyzer.calls());
+    Assert.assertEquals(1, scorer.pendingCount());
+    Assert.assertNull(getScore(third));
+  }
+
+  @Test
+  public void failedCommentStaysPending() throws Exception {
+    Key failed = putPendingComment("fail");
+    Key great = putPendingComment("great");
+    scorer.submit(failed);
+    scorer.submit(great);
+
+    scorer.scoreNextBatch();
+
+    Assert.assertNull(getScore(failed));
+    Assert.assertEquals(0.9, getScore(great), 1e-6);
+  }
+
+  @Test
+  public void submitRejectsWhenQueueIsFull() {
+    for (int i = 0; i < QUEUE_CAPACITY; i++) {
+      Assert.assertTrue(scorer.submit(putPendingComment("great")));
+    }
+
+    Assert.assertFalse(scorer.submit(putPendingComment("great")));
+  }
+
+  @Test
+  public void resumePendingQueuesOnlyUnscoredComments() throws Exception {
+    putPendingComment("great");
+    putPendingComment("bad");
+    Entity scored = new Entity("Comment");
+    scored.setProperty("text-input", "great");
+    scored.setProperty("sentiment_score", 0.9);
+    datastore.put(scored);
+
+    scorer.resumePending();
+
+    Assert.assertEquals(2, scorer.pendingCount());
+  }
+
+  @Test
+  public void resumePendingSkipsQueuedComments() {
+    Key queued = putPendingComment("great");
+    putPendingComment("bad");
+    scorer.submit(queued);
+
+    scorer.resumePending();
+
+    Assert.assertEquals(2, scorer.pendingCount());
+  }
+
+  @Test
+  public void failedCommentIsQueuedAgain() throws Exception {
+    Key failed = putPendingComment("fail");
+    scorer.submit(failed);
+    scorer.scoreNextBatch();
+
+    scorer.resumePending();
+
+    Assert.assertEquals(1, scorer.pendingCount());
+  }
+
+  private Key putPendingComment(String text) {
+    Entity comment = new Entity("Comment");
+    comment.setProperty("text-input", text);
+    comment.setProperty("sentiment_score", null);
+    return datastore.put(comment);
+  }
+
+  private Double getScore(Key key) throws EntityNotFoundException {
+    return (Double) datastore.get(key).getProperty("sentiment_score");
+  }
+}
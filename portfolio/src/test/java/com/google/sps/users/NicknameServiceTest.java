@@ -0,0 +1,130 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.users;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests the cached nickname lookups against a local Datastore. */
+@RunWith(JUnit4.class)
+public final class NicknameServiceTest {
+  private static final String USER_A = "user-a";
+  private static final String USER_B = "user-b";
+  private static final String USER_C = "user-c";
+  private static final long TTL_MILLIS = 1000;
+
+  private final LocalServiceTestHelper helper =
+      new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+  private DatastoreService datastore;
+  private long nanoTime;
+  private NicknameService nicknames;
+
+  @Before
+  public void setUp() {
+    helper.setUp();
+    datastore = DatastoreServiceFactory.getDatastoreService();
+    nanoTime = 0;
+    nicknames = new NicknameService(datastore, 2, TTL_MILLIS, () -> nanoTime);
+  }
+
+  @After
+  public void tearDown() {
+    helper.tearDown();
+  }
+
+  @Test
+  public void missingNicknameIsNull() {
+    Assert.assertNull(nicknames.getNickname(USER_A));
+  }
+
+  @Test
+  public void readsNicknameSavedByKey() {
+    Entity entity = new Entity("UserInfo", USER_A);
+    entity.setProperty("id", USER_A);
+    entity.setProperty("nickname", "Dan");
+    datastore.put(entity);
+
+    Assert.assertEquals("Dan", nicknames.getNickname(USER_A));
+  }
+
+  @Test
+  public void nicknameSavedElsewhereIsSeenAfterMissing() {
+    Assert.assertNull(nicknames.getNickname(USER_A));
+
+    // Another instance saves a nickname, which this one has no way to hear about
+    Entity entity = new Entity("UserInfo", USER_A);
+    entity.setProperty("id", USER_A);
+    entity.setProperty("nickname", "Dan");
+    datastore.put(entity);
+
+    Assert.assertEquals("Dan", nicknames.getNickname(USER_A));
+  }
+
+  @Test
+  public void setNicknameWritesThroughToCacheAndDatastore() throws Exception {
+    nicknames.getNickname(USER_A);
+    nicknames.setNickname(USER_A, "Dan");
+
+    Assert.assertEquals("Dan", nicknames.getNickname(USER_A));
+    Entity entity = datastore.get(KeyFactory.createKey("UserInfo", USER_A));
+    Assert.assertEquals("Dan", entity.getProperty("nickname"));
+  }
+
+  @Test
+  public void cachedNicknameSkipsDatastore() {
+    nicknames.setNickname(USER_A, "Dan");
+    datastore.delete(KeyFactory.createKey("UserInfo", USER_A));
+
+    Assert.assertEquals("Dan", nicknames.getNickname(USER_A));
+  }
+
+  @Test
+  public void nicknameChangedElsewhereIsSeenAfterTtl() {
+    nicknames.setNickname(USER_A, "Dan");
+
+    // Another instance changes the nickname, which this one has no way to hear about
+    Entity entity = new Entity("UserInfo", USER_A);
+    entity.setProperty("id", USER_A);
+    entity.setProperty("nickname", "Danny");
+    datastore.put(entity);
+    Assert.assertEquals("Dan", nicknames.getNickname(USER_A));
+
+    nanoTime += TimeUnit.MILLISECONDS.toNanos(TTL_MILLIS);
+    Assert.assertEquals("Danny", nicknames.getNickname(USER_A));
+  }
+
+  @Test
+  public void leastRecentlyUsedNicknameIsEvicted() {
+    nicknames.setNickname(USER_A, "Dan");
+    nicknames.setNickname(USER_B, "Bea");
+    nicknames.setNickname(USER_C, "Cal");
+    datastore.delete(KeyFactory.createKey("UserInfo", USER_A));
+
+    // USER_A fell out of the cache, so the deleted entity is read again
+    Assert.assertNull(nicknames.getNickname(USER_A));
+  }
+}
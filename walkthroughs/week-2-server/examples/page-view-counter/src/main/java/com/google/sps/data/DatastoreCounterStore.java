@@ -0,0 +1,85 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Transaction;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps counter shards in Datastore, as one entity per shard named after its number. Shards are
+ * added to in a transaction, so several servers can write to the same shard.
+ *
+ * <p>The shards are summed with a get by key rather than a query. Queries are eventually
+ * consistent, so one could miss the shard that was just written, and the count would go back.
+ */
+public final class DatastoreCounterStore implements ShardedCounter.Store {
+
+  private final String kind;
+  private final List<Key> shardKeys;
+
+  /** Creates a store that keeps shardCount shards under kind. */
+  public DatastoreCounterStore(String kind, int shardCount) {
+    this.kind = kind;
+    shardKeys = new ArrayList<>(shardCount);
+    for (int shard = 0; shard < shardCount; shard++) {
+      shardKeys.add(shardKey(shard));
+    }
+  }
+
+  @Override
+  public long sum() {
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    long sum = 0;
+    // Shards that were never written to are left out of the result
+    for (Entity entity : datastore.get(shardKeys).values()) {
+      sum += (long) entity.getProperty("count");
+    }
+    return sum;
+  }
+
+  @Override
+  public void add(int shard, long count) {
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    Key key = shardKey(shard);
+    Transaction transaction = datastore.beginTransaction();
+    try {
+      Entity entity;
+      try {
+        entity = datastore.get(transaction, key);
+      } catch (EntityNotFoundException e) {
+        entity = new Entity(key);
+        entity.setProperty("count", 0L);
+      }
+      entity.setProperty("count", (long) entity.getProperty("count") + count);
+      datastore.put(transaction, entity);
+      transaction.commit();
+    } finally {
+      if (transaction.isActive()) {
+        transaction.rollback();
+      }
+    }
+  }
+
+  private Key shardKey(int shard) {
+    return KeyFactory.createKey(kind, String.valueOf(shard));
+  }
+}
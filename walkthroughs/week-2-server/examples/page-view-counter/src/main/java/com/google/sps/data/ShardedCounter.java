@@ -0,0 +1,158 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A count shared by every server, kept in a store as several shards that add up to the total.
+ *
+ * <p>Increments are counted in memory and written every so often to a random shard, so servers
+ * rarely write to the same shard at the same time. Reads add up the shards, but at most once per
+ * cache period; the increments of this server that are not written yet are added on top, so its
+ * own increments show up right away.
+ */
+public final class ShardedCounter implements AutoCloseable {
+
+  /** Where the shards are kept. */
+  public interface Store {
+    /** Returns the sum of all shards. */
+    long sum();
+
+    /** Adds count to the shard numbered shard. */
+    void add(int shard, long count);
+  }
+
+  private final Store store;
+  private final int shardCount;
+  private final long flushMillis;
+  private final long cacheMillis;
+  private final LongSupplier clock;
+  private final LongAdder increments = new LongAdder();
+  // Held while reading or writing the store, so at most one thread waits for it at a time
+  private final ReentrantLock storeLock = new ReentrantLock();
+  private volatile Totals totals;
+  private ScheduledExecutorService flusher;
+
+  /**
+   * Creates a counter that spreads its writes over shardCount shards, writes every flushMillis
+   * and reads the shards at most every cacheMillis.
+   */
+  public ShardedCounter(Store store, int shardCount, long flushMillis, long cacheMillis) {
+    this(store, shardCount, flushMillis, cacheMillis, System::currentTimeMillis);
+  }
+
+  ShardedCounter(
+      Store store, int shardCount, long flushMillis, long cacheMillis, LongSupplier clock) {
+    this.store = store;
+    this.shardCount = shardCount;
+    this.flushMillis = flushMillis;
+    this.cacheMillis = cacheMillis;
+    this.clock = clock;
+  }
+
+  /** Reads the shards on the calling thread, then starts writing increments in the background. */
+  public synchronized void start() {
+    totals = new Totals(store.sum(), 0, clock.getAsLong());
+    flusher =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "counter-flusher");
+              thread.setDaemon(true);
+              return thread;
+            });
+    flusher.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /** Adds one to the count. */
+  public void increment() {
+    increments.increment();
+  }
+
+  /** Returns the count, including the increments of other servers as of the last read. */
+  public long get() {
+    Totals current = totals;
+    // If another thread is already busy with the store, the cached sum is good enough
+    if (clock.getAsLong() - current.readMillis >= cacheMillis && storeLock.tryLock()) {
+      try {
+        current = totals;
+        long sum = store.sum();
+        totals = current = new Totals(sum, current.flushed, clock.getAsLong());
+      } catch (RuntimeException e) {
+        System.err.println("Could not read counter shards: " + e);
+      } finally {
+        storeLock.unlock();
+      }
+    }
+    return current.storeSum + increments.sum() - current.flushed;
+  }
+
+  /** Writes the increments counted since the last flush to a random shard. Returns true if any. */
+  boolean flush() {
+    storeLock.lock();
+    try {
+      Totals current = totals;
+      // The count only ever goes up, so increments made while summing wait for the next flush
+      long delta = increments.sum() - current.flushed;
+      if (delta == 0) {
+        return false;
+      }
+      try {
+        store.add(ThreadLocalRandom.current().nextInt(shardCount), delta);
+      } catch (RuntimeException e) {
+        System.err.println("Could not save counter increments: " + e);
+        return false;
+      }
+      // The store now holds the delta too, so the count stays the same
+      totals = new Totals(current.storeSum + delta, current.flushed + delta, current.readMillis);
+      return true;
+    } finally {
+      storeLock.unlock();
+    }
+  }
+
+  /** Stops writing in the background, then writes the increments that are left. */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (flusher != null) {
+        flusher.shutdownNow();
+      }
+    }
+    flush();
+  }
+
+  /**
+   * The sum of the shards when they were last read, and how many of this server's increments had
+   * been written by then. Replaced as a whole, so readers always see the two together.
+   */
+  private static final class Totals {
+    private final long storeSum;
+    private final long flushed;
+    private final long readMillis;
+
+    private Totals(long storeSum, long flushed, long readMillis) {
+      this.storeSum = storeSum;
+      this.flushed = flushed;
+      this.readMillis = readMillis;
+    }
+  }
+}
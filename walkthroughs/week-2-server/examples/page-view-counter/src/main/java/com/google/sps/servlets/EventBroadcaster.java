@@ -0,0 +1,274 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.utils.SystemProperty;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Answers EventSource requests, by polling on App Engine and with server-sent events elsewhere.
+ *
+ * <p>App Engine standard buffers whole responses, so a stream held open there would never reach
+ * the browser. In production each request therefore gets the full data as one event and is closed,
+ * with a retry time that makes EventSource ask again after the poll interval. This is plain
+ * polling: every client makes a request per poll interval, and no events are pushed.
+ *
+ * <p>Where responses are sent as they are written, like on the local development server, the
+ * connections are held open with async servlets instead, so they take no request thread while they
+ * wait. Every interval the broadcaster asks for the changes since its last event and, if there are
+ * any, queues them on every connection as one event. Events are written with non-blocking I/O, so
+ * a slow client never holds up the others. A client that falls MAX_PENDING_EVENTS behind is
+ * dropped. Its EventSource opens a new connection by itself, and starts over from the full data.
+ */
+final class EventBroadcaster implements AutoCloseable {
+
+  // Closing connections now and then frees the ones whose clients left without saying so.
+  // EventSource opens a new connection by itself.
+  private static final long CONNECTION_MILLIS = 50 * 1000;
+
+  // Events a connection can fall behind before it is dropped
+  static final int MAX_PENDING_EVENTS = 8;
+
+  private final Supplier<String> changes;
+  private final long intervalMillis;
+  private final long pollMillis;
+  private final boolean streaming;
+  private final Set<Connection> clients = ConcurrentHashMap.newKeySet();
+  private ScheduledExecutorService sender;
+
+  /**
+   * Creates a broadcaster that sends the data returned by changes to open streams every
+   * intervalMillis, and has clients that cannot stream ask again every pollMillis. changes returns
+   * null when nothing changed since it was last called.
+   */
+  EventBroadcaster(Supplier<String> changes, long intervalMillis, long pollMillis) {
+    this.changes = changes;
+    this.intervalMillis = intervalMillis;
+    this.pollMillis = pollMillis;
+    streaming = SystemProperty.environment.value() != SystemProperty.Environment.Value.Production;
+  }
+
+  /** Starts sending events. Does nothing where clients poll, since no stream is ever open. */
+  synchronized void start() {
+    if (!streaming) {
+      return;
+    }
+    sender =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "event-broadcaster");
+              thread.setDaemon(true);
+              return thread;
+            });
+    sender.scheduleWithFixedDelay(
+        this::send, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Answers request with an event holding initial, which should be the full data so the client has
+   * something to apply changes to. Where streaming works the response is then kept open for later
+   * events; otherwise it is closed and the client polls again after pollMillis.
+   */
+  void add(HttpServletRequest request, HttpServletResponse response, String initial)
+      throws IOException {
+    response.setContentType("text/event-stream");
+    response.setCharacterEncoding("UTF-8");
+    response.setHeader("Cache-Control", "no-cache");
+    if (!streaming) {
+      byte[] retry = ("retry: " + pollMillis + "\n").getBytes(StandardCharsets.UTF_8);
+      response.getOutputStream().write(retry);
+      response.getOutputStream().write(toEvent(initial));
+      return;
+    }
+
+    AsyncContext context = request.startAsync();
+    context.setTimeout(CONNECTION_MILLIS);
+    Connection client =
+        new Connection(response.getOutputStream(), toEvent(initial), context::complete);
+    context.addListener(
+        new AsyncListener() {
+          @Override
+          public void onComplete(AsyncEvent event) {
+            clients.remove(client);
+          }
+
+          @Override
+          public void onTimeout(AsyncEvent event) {
+            clients.remove(client);
+            client.close();
+          }
+
+          @Override
+          public void onError(AsyncEvent event) {
+            clients.remove(client);
+          }
+
+          @Override
+          public void onStartAsync(AsyncEvent event) {}
+        });
+    // Added before the first event is written, so changes made meanwhile are not missed
+    clients.add(client);
+    client.start();
+  }
+
+  /** Sends one event with the changes since the last one, if there are any. */
+  private void send() {
+    // Changes pile up while nobody listens, and go out with the next event
+    if (clients.isEmpty()) {
+      return;
+    }
+    String data;
+    try {
+      data = changes.get();
+    } catch (RuntimeException e) {
+      System.err.println("Could not get changes: " + e);
+      return;
+    }
+    if (data == null) {
+      return;
+    }
+    byte[] event = toEvent(data);
+    for (Connection client : clients) {
+      if (!client.offer(event)) {
+        clients.remove(client);
+      }
+    }
+  }
+
+  private static byte[] toEvent(String data) {
+    return ("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Stops sending events and closes every connection. */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (sender != null) {
+        sender.shutdownNow();
+      }
+    }
+    for (Connection client : clients) {
+      client.close();
+    }
+    clients.clear();
+  }
+
+  /**
+   * The events waiting to be written to one connection. They are only written while the stream is
+   * ready for them, so no write blocks. The container calls onWritePossible() once it can take
+   * more.
+   */
+  static final class Connection implements WriteListener {
+    private final ServletOutputStream out;
+    private final Runnable onClose;
+    private final Deque<byte[]> pending = new ArrayDeque<>();
+    private boolean started;
+    private boolean unflushed;
+    private boolean closed;
+
+    /** Creates a connection that writes first before any other event, and runs onClose once. */
+    Connection(ServletOutputStream out, byte[] first, Runnable onClose) {
+      this.out = out;
+      this.onClose = onClose;
+      pending.add(first);
+    }
+
+    /** Switches the stream to non-blocking writes. The container then asks for the first event. */
+    void start() {
+      out.setWriteListener(this);
+    }
+
+    /**
+     * Queues event and writes what the stream is ready for. Returns false, and closes the
+     * connection, if it is closed or already has MAX_PENDING_EVENTS waiting.
+     */
+    synchronized boolean offer(byte[] event) {
+      if (closed) {
+        return false;
+      }
+      if (pending.size() >= MAX_PENDING_EVENTS) {
+        close();
+        return false;
+      }
+      pending.add(event);
+      if (started) {
+        drain();
+      }
+      return !closed;
+    }
+
+    @Override
+    public synchronized void onWritePossible() {
+      started = true;
+      drain();
+    }
+
+    @Override
+    public void onError(Throwable error) {
+      close();
+    }
+
+    /** Stops writing and drops the events still waiting. */
+    synchronized void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      pending.clear();
+      try {
+        onClose.run();
+      } catch (IllegalStateException e) {
+        // Already closed
+      }
+    }
+
+    /** Writes waiting events, then flushes them, for as long as the stream is ready. */
+    private void drain() {
+      try {
+        while (!closed && out.isReady()) {
+          byte[] event = pending.poll();
+          if (event != null) {
+            out.write(event);
+            unflushed = true;
+          } else if (unflushed) {
+            unflushed = false;
+            out.flush();
+          } else {
+            return;
+          }
+        }
+      } catch (IOException | IllegalStateException e) {
+        // The client went away, or the connection was already closed
+        close();
+      }
+    }
+  }
+}
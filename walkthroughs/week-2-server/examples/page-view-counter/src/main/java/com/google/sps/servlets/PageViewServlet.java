@@ -14,24 +14,92 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.data.DatastoreCounterStore;
+import com.google.sps.data.ShardedCounter;
 import java.io.IOException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Servlet that returns HTML that contains the page view count. */
-@WebServlet("/page-views")
+/**
+ * Servlet that returns HTML that contains the page view count.
+ *
+ * <p>Requests that accept text/event-stream, like those of EventSource, get the count as an event
+ * instead, e.g. {"views": 42}, which the page uses to keep its count up to date. They do not count
+ * as views. On App Engine the page polls for the count every POLL_MILLIS. Elsewhere the response
+ * stays open and new counts are pushed to it, see EventBroadcaster.
+ */
+@WebServlet(urlPatterns = "/page-views", asyncSupported = true)
 public class PageViewServlet extends HttpServlet {
 
-  private int pageViews = 0;
+  // Enough shards that servers seldom write to the same one at once
+  private static final int SHARD_COUNT = 20;
+  private static final long FLUSH_MILLIS = 1000;
+  // Views from other servers show up after at most this long
+  private static final long CACHE_MILLIS = 2000;
+  // The count is sent to open event streams at most this often, however many views come in
+  private static final long EVENT_MILLIS = 1000;
+  // How often pages ask for the count where it cannot be pushed. Each ask is a request.
+  private static final long POLL_MILLIS = 5000;
+
+  // Shows the views of other visitors as they come in
+  private static final String UPDATE_SCRIPT =
+      "<script>new EventSource('/page-views').onmessage = (event) => {"
+          + " document.getElementById('views').textContent = JSON.parse(event.data).views; };"
+          + "</script>";
+
+  private ShardedCounter pageViews;
+  private EventBroadcaster events;
+  // The count as of the last event. Only touched by the thread that sends events.
+  private long sentViews = -1;
+
+  @Override
+  public void init() {
+    pageViews =
+        new ShardedCounter(
+            new DatastoreCounterStore("PageViewShard", SHARD_COUNT),
+            SHARD_COUNT,
+            FLUSH_MILLIS,
+            CACHE_MILLIS);
+    pageViews.start();
+    events = new EventBroadcaster(this::changedViews, EVENT_MILLIS, POLL_MILLIS);
+    events.start();
+  }
+
+  @Override
+  public void destroy() {
+    events.close();
+    pageViews.close();
+  }
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    pageViews++;
+    String accept = request.getHeader("Accept");
+    if (accept != null && accept.contains("text/event-stream")) {
+      events.add(request, response, toJson(pageViews.get()));
+      return;
+    }
+    pageViews.increment();
 
     response.setContentType("text/html;");
     response.getWriter().println("<h1>Page Views</h1>");
-    response.getWriter().println("<p>This page has been viewed " + pageViews + " times.</p>");
+    String count = "<span id=\"views\">" + pageViews.get() + "</span>";
+    response.getWriter().println("<p>This page has been viewed " + count + " times.</p>");
+    response.getWriter().println(UPDATE_SCRIPT);
+  }
+
+  /** Returns the count as JSON if it changed since the last call, or null if it did not. */
+  private String changedViews() {
+    long views = pageViews.get();
+    if (views == sentViews) {
+      return null;
+    }
+    sentViews = views;
+    return toJson(views);
+  }
+
+  private static String toJson(long views) {
+    return "{\"views\": " + views + "}";
   }
 }
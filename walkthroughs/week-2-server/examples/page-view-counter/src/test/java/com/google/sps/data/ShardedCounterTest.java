@@ -0,0 +1,192 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests counting across shards and servers. */
+@RunWith(JUnit4.class)
+public final class ShardedCounterTest {
+  // Flushing is left to the tests, which flush themselves
+  private static final long NEVER = Long.MAX_VALUE;
+  private static final int SHARD_COUNT = 4;
+  private static final long CACHE_MILLIS = 1000;
+
+  private final FakeStore store = new FakeStore();
+  private final AtomicLong now = new AtomicLong();
+
+  @Test
+  public void concurrentIncrementsAreNeitherLostNorSavedTwice() throws Exception {
+    ShardedCounter counter = newCounter();
+    int threadCount = 8;
+    int incrementsPerThread = 50000;
+    // Every tenth write fails, so some increments have to wait for a later flush
+    store.failEvery = 10;
+    AtomicBoolean counting = new AtomicBoolean(true);
+
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < threadCount; t++) {
+      threads.add(
+          new Thread(
+              () -> {
+                for (int i = 0; i < incrementsPerThread; i++) {
+                  counter.increment();
+                }
+              }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    Thread flusher =
+        new Thread(
+            () -> {
+              while (counting.get()) {
+                counter.flush();
+                // Expires the cache now and then, so reads and writes overlap too
+                now.addAndGet(CACHE_MILLIS);
+                counter.get();
+              }
+            });
+    flusher.start();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    counting.set(false);
+    flusher.join();
+    store.failEvery = 0;
+    counter.close();
+
+    long expected = (long) threadCount * incrementsPerThread;
+    Assert.assertEquals(expected, counter.get());
+    Assert.assertEquals(expected, store.sum());
+  }
+
+  @Test
+  public void writesAreSpreadOverTheShards() {
+    ShardedCounter counter = newCounter();
+    for (int i = 0; i < 100; i++) {
+      counter.increment();
+      counter.flush();
+    }
+
+    for (int shard = 0; shard < SHARD_COUNT; shard++) {
+      Assert.assertTrue(store.shards.get(shard) > 0);
+    }
+  }
+
+  @Test
+  public void ownIncrementsShowUpBeforeTheyAreWritten() {
+    ShardedCounter counter = newCounter();
+    counter.increment();
+    counter.increment();
+
+    Assert.assertEquals(2, counter.get());
+    Assert.assertEquals(0, store.sum());
+  }
+
+  @Test
+  public void flushDoesNotChangeTheCount() {
+    ShardedCounter counter = newCounter();
+    counter.increment();
+    counter.get();
+
+    Assert.assertTrue(counter.flush());
+    Assert.assertEquals(1, counter.get());
+    Assert.assertFalse(counter.flush());
+  }
+
+  @Test
+  public void otherServersShowUpOnceTheCacheExpires() {
+    ShardedCounter first = newCounter();
+    ShardedCounter second = newCounter();
+    second.increment();
+    second.increment();
+    second.flush();
+
+    Assert.assertEquals(0, first.get());
+    now.addAndGet(CACHE_MILLIS);
+    Assert.assertEquals(2, first.get());
+  }
+
+  @Test
+  public void readsWithinTheCachePeriodDoNotTouchTheStore() {
+    ShardedCounter counter = newCounter();
+    int reads = store.reads.get();
+
+    counter.get();
+    now.addAndGet(CACHE_MILLIS - 1);
+    counter.get();
+    Assert.assertEquals(reads, store.reads.get());
+
+    now.addAndGet(1);
+    counter.get();
+    Assert.assertEquals(reads + 1, store.reads.get());
+  }
+
+  @Test
+  public void failedWriteIsRetried() {
+    ShardedCounter counter = newCounter();
+    store.failEvery = 1;
+    counter.increment();
+    Assert.assertFalse(counter.flush());
+
+    store.failEvery = 0;
+    counter.increment();
+    Assert.assertTrue(counter.flush());
+    Assert.assertEquals(2, store.sum());
+  }
+
+  private ShardedCounter newCounter() {
+    ShardedCounter counter = new ShardedCounter(store, SHARD_COUNT, NEVER, CACHE_MILLIS, now::get);
+    counter.start();
+    return counter;
+  }
+
+  /** Keeps shards in memory, and can be made to fail some of its writes. */
+  private static final class FakeStore implements ShardedCounter.Store {
+    private final AtomicLongArray shards = new AtomicLongArray(SHARD_COUNT);
+    private final AtomicInteger reads = new AtomicInteger();
+    private final AtomicInteger writes = new AtomicInteger();
+    private volatile int failEvery;
+
+    @Override
+    public long sum() {
+      reads.incrementAndGet();
+      long sum = 0;
+      for (int shard = 0; shard < shards.length(); shard++) {
+        sum += shards.get(shard);
+      }
+      return sum;
+    }
+
+    @Override
+    public void add(int shard, long count) {
+      int write = writes.incrementAndGet();
+      if (failEvery > 0 && write % failEvery == 0) {
+        throw new IllegalStateException("Write " + write + " failed");
+      }
+      shards.addAndGet(shard, count);
+    }
+  }
+}
@@ -0,0 +1,194 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Holds the current snapshot of a dataset and loads a new one whenever its source file changes.
+ *
+ * <p>A snapshot is built completely on a background thread before it replaces the old one, so
+ * readers never wait and never see a half-loaded dataset. If loading fails, the old snapshot stays.
+ */
+public final class DatasetManager<T> implements AutoCloseable {
+
+  /** Builds a snapshot from the source file. */
+  public interface Loader<T> {
+    T load() throws IOException;
+  }
+
+  private final Loader<T> loader;
+  private final Path file;
+  private final long pollMillis;
+  private final List<Consumer<T>> listeners = new CopyOnWriteArrayList<>();
+  private volatile T snapshot;
+  private ScheduledExecutorService poller;
+
+  // Only touched by the polling thread after start()
+  private FileVersion loadedVersion;
+  private FileVersion changedVersion;
+
+  /**
+   * Creates a manager that loads snapshots with loader. If file is null, for example because the
+   * web app is not unpacked on disk, the first snapshot is never replaced.
+   */
+  public DatasetManager(Loader<T> loader, Path file, long pollMillis) {
+    this.loader = loader;
+    this.file = file;
+    this.pollMillis = pollMillis;
+  }
+
+  /** Loads the first snapshot on the calling thread, then starts watching the file. */
+  public void start() throws IOException {
+    start(loader);
+  }
+
+  /**
+   * Like start(), but loads the first snapshot with firstLoader, for example from a copy of the
+   * file in a format that is faster to read. Later changes to the file are loaded with the loader
+   * given to the constructor.
+   */
+  public void start(Loader<T> firstLoader) throws IOException {
+    loadedVersion = FileVersion.of(file);
+    snapshot = firstLoader.load();
+    if (file == null) {
+      return;
+    }
+    poller =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "dataset-watcher-" + file.getFileName());
+              thread.setDaemon(true);
+              return thread;
+            });
+    poller.scheduleWithFixedDelay(
+        this::reloadQuietly, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /** Returns the current snapshot. */
+  public T get() {
+    return snapshot;
+  }
+
+  /** Calls listener with every snapshot that replaces the current one. */
+  public void addListener(Consumer<T> listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Loads a new snapshot if the file changed. A change is only loaded once the file looks the same
+   * on two checks in a row, so a file that is still being written is not read half way. Returns
+   * true if the snapshot was replaced.
+   */
+  boolean reloadIfChanged() {
+    FileVersion version;
+    try {
+      version = FileVersion.of(file);
+    } catch (IOException e) {
+      System.err.println("Could not check " + file + ": " + e);
+      return false;
+    }
+    if (version.equals(loadedVersion)) {
+      changedVersion = null;
+      return false;
+    }
+    if (!version.equals(changedVersion)) {
+      changedVersion = version;
+      return false;
+    }
+
+    T loaded;
+    try {
+      loaded = loader.load();
+    } catch (IOException | RuntimeException e) {
+      // Keeps serving the old data, and tries again once the file changes again
+      System.err.println("Could not reload " + file + ": " + e);
+      loadedVersion = version;
+      return false;
+    }
+    loadedVersion = version;
+    changedVersion = null;
+    snapshot = loaded;
+    for (Consumer<T> listener : listeners) {
+      try {
+        listener.accept(loaded);
+      } catch (RuntimeException e) {
+        // The other listeners still get the new snapshot
+        System.err.println("Listener failed on reload of " + file + ": " + e);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Runs reloadIfChanged() on the polling thread. An exception escaping a scheduled task would
+   * cancel every later check, so none is let through.
+   */
+  private void reloadQuietly() {
+    try {
+      reloadIfChanged();
+    } catch (RuntimeException e) {
+      System.err.println("Could not reload " + file + ": " + e);
+    }
+  }
+
+  /** Stops watching the file. */
+  @Override
+  public void close() {
+    if (poller != null) {
+      poller.shutdownNow();
+    }
+  }
+
+  /** What a file looked like when it was checked. */
+  private static final class FileVersion {
+    private final long modifiedMillis;
+    private final long size;
+
+    private FileVersion(long modifiedMillis, long size) {
+      this.modifiedMillis = modifiedMillis;
+      this.size = size;
+    }
+
+    private static FileVersion of(Path file) throws IOException {
+      if (file == null) {
+        return null;
+      }
+      return new FileVersion(Files.getLastModifiedTime(file).toMillis(), Files.size(file));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof FileVersion)) {
+        return false;
+      }
+      FileVersion version = (FileVersion) other;
+      return modifiedMillis == version.modifiedMillis && size == version.size;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(modifiedMillis) * 31 + Long.hashCode(size);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.LinkedHashMap;
+
+/**
+ * A count for every year from the first to the last year of a dataset, answering the total of any
+ * range of years in constant time.
+ *
+ * <p>The counts are kept as running totals: total[i] is the sum of the counts of the i years before
+ * firstYear + i. The total of a range is then the difference of two running totals. Years missing
+ * from the data count as 0.
+ */
+public final class YearlyCounts {
+  private final int firstYear;
+  private final int lastYear;
+  private final long[] totals;
+
+  /** Adds up counts[i] for years[i]. A year that appears more than once gets the sum. */
+  public YearlyCounts(int[] years, long[] counts) {
+    int first = Integer.MAX_VALUE;
+    int last = Integer.MIN_VALUE;
+    for (int year : years) {
+      first = Math.min(first, year);
+      last = Math.max(last, year);
+    }
+    if (years.length == 0) {
+      first = 0;
+      last = -1;
+    }
+    firstYear = first;
+    lastYear = last;
+
+    totals = new long[lastYear - firstYear + 2];
+    for (int i = 0; i < years.length; i++) {
+      totals[years[i] - firstYear + 1] += counts[i];
+    }
+    for (int i = 1; i < totals.length; i++) {
+      totals[i] += totals[i - 1];
+    }
+  }
+
+  /** Returns the first year of the data. Undefined if the data is empty. */
+  public int getFirstYear() {
+    return firstYear;
+  }
+
+  /** Returns the last year of the data. Undefined if the data is empty. */
+  public int getLastYear() {
+    return lastYear;
+  }
+
+  /** Returns the total of the years from from to to, both included. */
+  public long sum(int from, int to) {
+    from = Math.max(from, firstYear);
+    to = Math.min(to, lastYear);
+    if (from > to) {
+      return 0;
+    }
+    return totals[to - firstYear + 1] - totals[from - firstYear];
+  }
+
+  /** Returns the count of every year in the range that is within the data, by year. */
+  public LinkedHashMap<Integer, Long> yearly(int from, int to) {
+    LinkedHashMap<Integer, Long> series = new LinkedHashMap<>();
+    for (int year = Math.max(from, firstYear); year <= Math.min(to, lastYear); year++) {
+      series.put(year, sum(year, year));
+    }
+    return series;
+  }
+
+  /**
+   * Returns the total of each decade that overlaps the range, by the first year of the decade, e.g.
+   * 1990 for the 1990s. Only the years inside the range count.
+   */
+  public LinkedHashMap<Integer, Long> byDecade(int from, int to) {
+    LinkedHashMap<Integer, Long> series = new LinkedHashMap<>();
+    from = Math.max(from, firstYear);
+    to = Math.min(to, lastYear);
+    if (from > to) {
+      return series;
+    }
+    for (int decade = Math.floorDiv(from, 10) * 10; decade <= to; decade += 10) {
+      series.put(decade, sum(Math.max(decade, from), Math.min(decade + 9, to)));
+    }
+    return series;
+  }
+
+  /**
+   * Returns, for every year in the range, the average count of that year and the window - 1 years
+   * before it. Near the start of the data, only the years that have data are averaged.
+   */
+  public LinkedHashMap<Integer, Double> movingAverage(int from, int to, int window) {
+    LinkedHashMap<Integer, Double> series = new LinkedHashMap<>();
+    for (int year = Math.max(from, firstYear); year <= Math.min(to, lastYear); year++) {
+      int start = (int) Math.max((long) year - window + 1, firstYear);
+      series.put(year, (double) sum(start, year) / (year - start + 1));
+    }
+    return series;
+  }
+
+  /** Returns, for every year in the range, the total from the start of the range to that year. */
+  public LinkedHashMap<Integer, Long> cumulative(int from, int to) {
+    LinkedHashMap<Integer, Long> series = new LinkedHashMap<>();
+    for (int year = Math.max(from, firstYear); year <= Math.min(to, lastYear); year++) {
+      series.put(year, sum(from, year));
+    }
+    return series;
+  }
+}
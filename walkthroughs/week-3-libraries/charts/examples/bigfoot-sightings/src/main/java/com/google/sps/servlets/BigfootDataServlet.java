@@ -15,41 +15,202 @@
 package com.google.sps.servlets;
 
 import com.google.gson.Gson;
+import com.google.sps.data.CsvLoader;
+import com.google.sps.data.DatasetManager;
+import com.google.sps.data.YearlyCounts;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.LinkedHashMap;
-import java.util.Scanner;
+import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Returns bigfoot data as a JSON object, e.g. {"2017": 52, "2018": 34}] */
+/**
+ * Returns bigfoot data as a JSON object, e.g. {"2017": 52, "2018": 34}.
+ *
+ * <p>The from and to parameters limit the years returned, both included. The rollup parameter
+ * returns a series computed from the yearly counts instead:
+ *
+ * <ul>
+ *   <li>decade: the total of each decade, by its first year, e.g. {"1990": 310}
+ *   <li>moving-average: the average of each year and the window - 1 years before it, where window
+ *       is another parameter that defaults to 5
+ *   <li>cumulative: the total from the first year of the range to each year
+ * </ul>
+ */
 @WebServlet("/bigfoot-data")
 public class BigfootDataServlet extends HttpServlet {
 
-  private LinkedHashMap<Integer, Integer> bigfootSightings = new LinkedHashMap<>();
+  // The data changes rarely, so clients can reuse it for a few minutes
+  private static final String CACHE_CONTROL = "public, max-age=300";
+  private static final String CSV_PATH = "/WEB-INF/bigfoot-sightings-by-year.csv";
+  private static final long POLL_MILLIS = 10 * 1000;
+  private static final int DEFAULT_WINDOW = 5;
+
+  private DatasetManager<Snapshot> snapshots;
 
   @Override
-  public void init() {
-    Scanner scanner = new Scanner(getServletContext().getResourceAsStream(
-        "/WEB-INF/bigfoot-sightings-by-year.csv"));
-    while (scanner.hasNextLine()) {
-      String line = scanner.nextLine();
-      String[] cells = line.split(",");
+  public void init() throws ServletException {
+    // Only a file that is unpacked on disk can be memory-mapped and watched for changes
+    String realPath = getServletContext().getRealPath(CSV_PATH);
+    Path file =
+        realPath != null && Files.isRegularFile(Paths.get(realPath)) ? Paths.get(realPath) : null;
+
+    snapshots = new DatasetManager<>(() -> new Snapshot(loadCsv(file)), file, POLL_MILLIS);
+    try {
+      snapshots.start();
+    } catch (IOException e) {
+      throw new ServletException("Could not load bigfoot sightings", e);
+    }
+  }
 
-      Integer year = Integer.valueOf(cells[0]);
-      Integer sightings = Integer.valueOf(cells[1]);
+  @Override
+  public void destroy() {
+    snapshots.close();
+  }
 
-      bigfootSightings.put(year, sightings);
+  /** Reads the CSV file, with lines like "2017,52", from disk if it is there. */
+  private double[][] loadCsv(Path file) throws IOException {
+    if (file != null) {
+      return CsvLoader.load(file, 2);
+    }
+    try (InputStream csv = getServletContext().getResourceAsStream(CSV_PATH)) {
+      return CsvLoader.load(csv, 2);
     }
-    scanner.close();
   }
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // One snapshot serves the whole request, even if a new one is swapped in meanwhile
+    Snapshot snapshot = snapshots.get();
     response.setContentType("application/json");
-    Gson gson = new Gson();
-    String json = gson.toJson(bigfootSightings);
-    response.getWriter().println(json);
+    if (request.getParameter("from") != null
+        || request.getParameter("to") != null
+        || request.getParameter("rollup") != null) {
+      serveSeries(snapshot, request, response);
+      return;
+    }
+
+    boolean gzip = GzipFilter.acceptsGzip(request);
+    // Each encoding is a different representation, so it gets its own ETag
+    String responseEtag = gzip ? snapshot.gzippedEtag : snapshot.etag;
+    if (HttpCaching.notModified(
+        request, response, responseEtag, snapshot.loadedMillis, CACHE_CONTROL)) {
+      return;
+    }
+
+    // Clients that accept gzip get the bytes compressed when the snapshot was built, which
+    // GzipFilter passes through
+    byte[] body = snapshot.json;
+    if (gzip) {
+      response.setHeader("Content-Encoding", "gzip");
+      body = snapshot.gzippedJson;
+    }
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+
+  /** Writes the series asked for by the from, to, rollup and window parameters. */
+  private static void serveSeries(
+      Snapshot snapshot, HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    YearlyCounts counts = snapshot.counts;
+    Integer from = getInt(request, "from", Integer.MIN_VALUE);
+    Integer to = getInt(request, "to", Integer.MAX_VALUE);
+    Integer window = getInt(request, "window", DEFAULT_WINDOW);
+    if (from == null || to == null || window == null || window < 1) {
+      response.sendError(
+          HttpServletResponse.SC_BAD_REQUEST,
+          "from and to must be years and window must be a positive number.");
+      return;
+    }
+
+    Object series;
+    String rollup = request.getParameter("rollup");
+    if (rollup == null) {
+      series = counts.yearly(from, to);
+    } else if (rollup.equals("decade")) {
+      series = counts.byDecade(from, to);
+    } else if (rollup.equals("moving-average")) {
+      series = counts.movingAverage(from, to, window);
+    } else if (rollup.equals("cumulative")) {
+      series = counts.cumulative(from, to);
+    } else {
+      response.sendError(
+          HttpServletResponse.SC_BAD_REQUEST,
+          "rollup must be decade, moving-average or cumulative.");
+      return;
+    }
+
+    byte[] body = new Gson().toJson(series).getBytes(StandardCharsets.UTF_8);
+    response.setHeader("Cache-Control", CACHE_CONTROL);
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+
+  /**
+   * Returns the named request parameter as a number, defaultValue if it is missing, or null if it
+   * is not a number.
+   */
+  private static Integer getInt(HttpServletRequest request, String name, int defaultValue) {
+    String value = request.getParameter(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.valueOf(value);
+    } catch (NumberFormatException e) {
+      System.err.println("Could not convert to int: " + value);
+      return null;
+    }
+  }
+
+  /**
+   * One version of the sightings, with the running totals and the full JSON built up front. A
+   * snapshot never changes.
+   */
+  private static final class Snapshot {
+    private final YearlyCounts counts;
+    private final byte[] json;
+    private final byte[] gzippedJson;
+    private final String etag;
+    private final String gzippedEtag;
+    private final long loadedMillis;
+
+    private Snapshot(double[][] columns) {
+      int[] years = new int[columns[0].length];
+      long[] sightings = new long[years.length];
+      LinkedHashMap<Integer, Integer> bigfootSightings = new LinkedHashMap<>();
+      for (int i = 0; i < years.length; i++) {
+        years[i] = toInt(columns[0][i]);
+        sightings[i] = toInt(columns[1][i]);
+        bigfootSightings.put(years[i], (int) sightings[i]);
+      }
+      counts = new YearlyCounts(years, sightings);
+
+      Gson gson = new Gson();
+      json = gson.toJson(bigfootSightings).getBytes(StandardCharsets.UTF_8);
+      gzippedJson = GzipFilter.gzip(json);
+      etag = HttpCaching.etag(json);
+      gzippedEtag = HttpCaching.etag(gzippedJson);
+      loadedMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns value as an int. The loader parses every cell as a double, so a cell like "1999.5"
+     * is rejected here rather than cut down to 1999.
+     */
+    private static int toInt(double value) {
+      if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+        throw new NumberFormatException("Could not convert to int: " + value);
+      }
+      return (int) value;
+    }
   }
 }
@@ -0,0 +1,119 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.LinkedHashMap;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests range totals and rollups of yearly counts. */
+@RunWith(JUnit4.class)
+public final class YearlyCountsTest {
+
+  // 1998 is missing and 2001 appears twice
+  private static final YearlyCounts COUNTS =
+      new YearlyCounts(
+          new int[] {1995, 1996, 1997, 1999, 2000, 2001, 2001},
+          new long[] {1, 2, 3, 5, 8, 10, 3});
+
+  @Test
+  public void sumMatchesAddingUpEveryYear() {
+    Random random = new Random(1);
+    int[] years = new int[200];
+    long[] counts = new long[years.length];
+    long[] byYear = new long[100];
+    for (int i = 0; i < years.length; i++) {
+      years[i] = 1900 + random.nextInt(byYear.length);
+      counts[i] = random.nextInt(50);
+      byYear[years[i] - 1900] += counts[i];
+    }
+    YearlyCounts yearlyCounts = new YearlyCounts(years, counts);
+
+    for (int from = 1890; from < 2010; from += 7) {
+      for (int to = from - 3; to < 2010; to += 5) {
+        long expected = 0;
+        for (int year = Math.max(from, 1900); year <= Math.min(to, 1999); year++) {
+          expected += byYear[year - 1900];
+        }
+        Assert.assertEquals(expected, yearlyCounts.sum(from, to));
+      }
+    }
+  }
+
+  @Test
+  public void yearlyFillsMissingYearsAndAddsRepeatedOnes() {
+    LinkedHashMap<Integer, Long> expected = new LinkedHashMap<>();
+    expected.put(1997, 3L);
+    expected.put(1998, 0L);
+    expected.put(1999, 5L);
+    expected.put(2000, 8L);
+    expected.put(2001, 13L);
+
+    Assert.assertEquals(expected, COUNTS.yearly(1997, 2010));
+  }
+
+  @Test
+  public void byDecadeCountsOnlyYearsInTheRange() {
+    LinkedHashMap<Integer, Long> expected = new LinkedHashMap<>();
+    expected.put(1990, 2L + 3 + 5);
+    expected.put(2000, 8L);
+
+    Assert.assertEquals(expected, COUNTS.byDecade(1996, 2000));
+  }
+
+  @Test
+  public void movingAverageShortensTheWindowAtTheStart() {
+    LinkedHashMap<Integer, Double> expected = new LinkedHashMap<>();
+    expected.put(1995, 1.0);
+    expected.put(1996, 1.5);
+    expected.put(1997, 2.0);
+    expected.put(1998, 5.0 / 3);
+    expected.put(1999, 8.0 / 3);
+
+    Assert.assertEquals(expected, COUNTS.movingAverage(1990, 1999, 3));
+  }
+
+  @Test
+  public void cumulativeStartsAtTheRange() {
+    LinkedHashMap<Integer, Long> expected = new LinkedHashMap<>();
+    expected.put(1999, 5L);
+    expected.put(2000, 13L);
+    expected.put(2001, 26L);
+
+    Assert.assertEquals(expected, COUNTS.cumulative(1999, 2001));
+  }
+
+  @Test
+  public void rangeOutsideTheDataIsEmpty() {
+    Assert.assertEquals(0, COUNTS.sum(2002, 2010));
+    Assert.assertEquals(0, COUNTS.sum(2000, 1999));
+    Assert.assertTrue(COUNTS.yearly(1980, 1990).isEmpty());
+    Assert.assertTrue(COUNTS.byDecade(2001, 1995).isEmpty());
+  }
+
+  @Test
+  public void emptyDataHasNoSeries() {
+    YearlyCounts empty = new YearlyCounts(new int[0], new long[0]);
+
+    Assert.assertEquals(0, empty.sum(Integer.MIN_VALUE, Integer.MAX_VALUE));
+    Assert.assertTrue(empty.yearly(Integer.MIN_VALUE, Integer.MAX_VALUE).isEmpty());
+    Assert.assertTrue(empty.byDecade(Integer.MIN_VALUE, Integer.MAX_VALUE).isEmpty());
+    Assert.assertTrue(empty.movingAverage(Integer.MIN_VALUE, Integer.MAX_VALUE, 5).isEmpty());
+    Assert.assertTrue(empty.cumulative(Integer.MIN_VALUE, Integer.MAX_VALUE).isEmpty());
+  }
+}
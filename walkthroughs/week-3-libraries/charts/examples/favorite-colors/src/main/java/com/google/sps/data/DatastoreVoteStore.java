@@ -0,0 +1,85 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Transaction;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps vote totals in Datastore, as one entity per choice named after the choice. Totals are
+ * added to in a transaction, so several servers can save their votes to the same entity.
+ *
+ * <p>Totals are loaded with a get by key rather than a query. Queries are eventually consistent,
+ * so one could miss votes saved just before a server starts, and that server would add its votes
+ * to a total that is too low from then on.
+ */
+public final class DatastoreVoteStore implements VoteCounter.Store {
+
+  private final String kind;
+  private final List<Key> choiceKeys;
+
+  /** Creates a store that keeps the totals of choices under kind. */
+  public DatastoreVoteStore(String kind, Collection<String> choices) {
+    this.kind = kind;
+    choiceKeys = new ArrayList<>(choices.size());
+    for (String choice : choices) {
+      choiceKeys.add(KeyFactory.createKey(kind, choice));
+    }
+  }
+
+  @Override
+  public Map<String, Long> load() {
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    Map<String, Long> totals = new HashMap<>();
+    // Choices without votes yet are left out of the result
+    for (Entity entity : datastore.get(choiceKeys).values()) {
+      totals.put(entity.getKey().getName(), (long) entity.getProperty("votes"));
+    }
+    return totals;
+  }
+
+  @Override
+  public void add(String choice, long votes) {
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    Key key = KeyFactory.createKey(kind, choice);
+    Transaction transaction = datastore.beginTransaction();
+    try {
+      Entity entity;
+      try {
+        entity = datastore.get(transaction, key);
+      } catch (EntityNotFoundException e) {
+        entity = new Entity(key);
+        entity.setProperty("votes", 0L);
+      }
+      entity.setProperty("votes", (long) entity.getProperty("votes") + votes);
+      datastore.put(transaction, entity);
+      transaction.commit();
+    } finally {
+      if (transaction.isActive()) {
+        transaction.rollback();
+      }
+    }
+  }
+}
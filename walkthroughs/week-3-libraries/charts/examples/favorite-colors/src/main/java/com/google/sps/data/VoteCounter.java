@@ -0,0 +1,130 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts votes from many threads at once and saves them to a store in the background.
+ *
+ * <p>Votes are counted in memory without locks, so voting never waits for the store. Every so
+ * often the votes added since the last save are written to the store, one write per choice no
+ * matter how many votes it got. If a write fails, those votes are written with the next batch.
+ */
+public final class VoteCounter implements AutoCloseable {
+
+  /** Where the vote totals are kept between restarts. */
+  public interface Store {
+    /** Returns the total votes of every choice. */
+    Map<String, Long> load();
+
+    /** Adds votes to the total of choice. */
+    void add(String choice, long votes);
+  }
+
+  private final Store store;
+  private final long flushMillis;
+  private final ConcurrentHashMap<String, LongAdder> votes = new ConcurrentHashMap<>();
+  private ScheduledExecutorService flusher;
+
+  // The total of each choice that is already in the store. Only touched by flush(), which holds
+  // the lock.
+  private final Map<String, Long> flushed = new HashMap<>();
+
+  /** Creates a counter that writes new votes to store every flushMillis. */
+  public VoteCounter(Store store, long flushMillis) {
+    this.store = store;
+    this.flushMillis = flushMillis;
+  }
+
+  /** Loads the totals from the store on the calling thread, then starts saving new votes. */
+  public synchronized void start() {
+    for (Map.Entry<String, Long> total : store.load().entrySet()) {
+      LongAdder adder = new LongAdder();
+      adder.add(total.getValue());
+      votes.put(total.getKey(), adder);
+      flushed.put(total.getKey(), total.getValue());
+    }
+    flusher =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "vote-flusher");
+              thread.setDaemon(true);
+              return thread;
+            });
+    flusher.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /** Counts one vote for choice. */
+  public void add(String choice) {
+    // computeIfAbsent locks its bin even when the choice exists, so it is only used the first time
+    LongAdder adder = votes.get(choice);
+    if (adder == null) {
+      adder = votes.computeIfAbsent(choice, key -> new LongAdder());
+    }
+    adder.increment();
+  }
+
+  /** Returns the total votes of every choice, sorted by choice. */
+  public Map<String, Long> getVotes() {
+    Map<String, Long> totals = new TreeMap<>();
+    votes.forEach((choice, adder) -> totals.put(choice, adder.sum()));
+    return totals;
+  }
+
+  /**
+   * Writes the votes added since the last flush to the store. Returns the number of choices
+   * written.
+   */
+  synchronized int flush() {
+    int written = 0;
+    for (Map.Entry<String, LongAdder> entry : votes.entrySet()) {
+      String choice = entry.getKey();
+      // Votes only ever go up, so anything added while summing is simply left for the next flush
+      long total = entry.getValue().sum();
+      long delta = total - flushed.getOrDefault(choice, 0L);
+      if (delta == 0) {
+        continue;
+      }
+      try {
+        store.add(choice, delta);
+      } catch (RuntimeException e) {
+        System.err.println("Could not save votes for " + choice + ": " + e);
+        continue;
+      }
+      flushed.put(choice, total);
+      written++;
+    }
+    return written;
+  }
+
+  /** Stops saving in the background, then saves the votes that are left. */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (flusher != null) {
+        flusher.shutdownNow();
+      }
+    }
+    flush();
+  }
+}
@@ -15,35 +15,96 @@
 package com.google.sps.servlets;
 
 import com.google.gson.Gson;
+import com.google.sps.data.DatastoreVoteStore;
+import com.google.sps.data.VoteCounter;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.TreeMap;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-
-@WebServlet("/color-data")
+/**
+ * Counts votes for favorite colors and returns them as a JSON object, e.g. {"Blue": 3}.
+ *
+ * <p>Requests that accept text/event-stream, like those of EventSource, get the votes as an event
+ * instead. On App Engine that is the only event, and the page polls for the votes every
+ * POLL_MILLIS. Elsewhere the response stays open, see EventBroadcaster: the first event holds every
+ * color, and each later one the colors whose votes changed.
+ */
+@WebServlet(urlPatterns = "/color-data", asyncSupported = true)
 public class ColorDataServlet extends HttpServlet {
 
-  private Map<String, Integer> colorVotes = new HashMap<>();
+  // Votes from the last few seconds are lost if the server stops without shutting down
+  private static final long FLUSH_MILLIS = 5 * 1000;
+  // Votes are sent to open event streams at most this often, however many come in
+  private static final long EVENT_MILLIS = 500;
+  // How often pages ask for the votes where they cannot be pushed. Each ask is a request.
+  private static final long POLL_MILLIS = 5000;
+  // The colors of the form in index.html. Only these can be voted for.
+  private static final List<String> COLORS =
+      Arrays.asList("Red", "Orange", "Yellow", "Green", "Blue", "Violet");
+
+  private VoteCounter colorVotes;
+  private EventBroadcaster events;
+  // The votes as of the last event. Only touched by the thread that sends events.
+  private Map<String, Long> sentVotes = new HashMap<>();
+
+  @Override
+  public void init() {
+    colorVotes = new VoteCounter(new DatastoreVoteStore("ColorVotes", COLORS), FLUSH_MILLIS);
+    colorVotes.start();
+    events = new EventBroadcaster(this::changedVotes, EVENT_MILLIS, POLL_MILLIS);
+    events.start();
+  }
+
+  @Override
+  public void destroy() {
+    events.close();
+    colorVotes.close();
+  }
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    response.setContentType("application/json");
     Gson gson = new Gson();
-    String json = gson.toJson(colorVotes);
+    String json = gson.toJson(colorVotes.getVotes());
+    String accept = request.getHeader("Accept");
+    if (accept != null && accept.contains("text/event-stream")) {
+      events.add(request, response, json);
+      return;
+    }
+
+    response.setContentType("application/json");
     response.getWriter().println(json);
   }
 
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
     String color = request.getParameter("color");
-    int currentVotes = colorVotes.containsKey(color) ? colorVotes.get(color) : 0;
-    colorVotes.put(color, currentVotes + 1);
+    if (color == null || !COLORS.contains(color)) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "color must be one of " + COLORS);
+      return;
+    }
+    colorVotes.add(color);
 
     response.sendRedirect("/index.html");
   }
+
+  /** Returns the colors whose votes changed since the last call as JSON, or null if none did. */
+  private String changedVotes() {
+    Map<String, Long> votes = colorVotes.getVotes();
+    Map<String, Long> changed = new TreeMap<>();
+    votes.forEach(
+        (color, count) -> {
+          if (!count.equals(sentVotes.get(color))) {
+            changed.put(color, count);
+          }
+        });
+    sentVotes = votes;
+    return changed.isEmpty() ? null : new Gson().toJson(changed);
+  }
 }
@@ -15,25 +15,30 @@
 google.charts.load('current', {'packages':['corechart']});
 google.charts.setOnLoadCallback(drawChart);
 
-/** Fetches color data and uses it to create a chart. */
+/**
+ * Listens for color data and draws it in a chart. The first event holds every color, and each later
+ * one only the colors whose votes changed.
+ */
 function drawChart() {
-  fetch('/color-data').then(response => response.json())
-  .then((colorVotes) => {
+  const colorVotes = {};
+  const chart = new google.visualization.ColumnChart(
+      document.getElementById('chart-container'));
+  const options = {
+    'title': 'Favorite Colors',
+    'width':600,
+    'height':500
+  };
+
+  const events = new EventSource('/color-data');
+  events.onmessage = (event) => {
+    Object.assign(colorVotes, JSON.parse(event.data));
+
     const data = new google.visualization.DataTable();
     data.addColumn('string', 'Color');
     data.addColumn('number', 'Votes');
     Object.keys(colorVotes).forEach((color) => {
       data.addRow([color, colorVotes[color]]);
     });
-
-    const options = {
-      'title': 'Favorite Colors',
-      'width':600,
-      'height':500
-    };
-
-    const chart = new google.visualization.ColumnChart(
-        document.getElementById('chart-container'));
     chart.draw(data, options);
-  });
-}
\ No newline at end of file
+  };
+}
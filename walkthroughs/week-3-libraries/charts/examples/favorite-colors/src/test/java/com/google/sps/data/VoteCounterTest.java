@@ -0,0 +1,175 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests counting votes from many threads and saving them. */
+@RunWith(JUnit4.class)
+public final class VoteCounterTest {
+  // Flushing is left to the tests, which flush themselves
+  private static final long NEVER = Long.MAX_VALUE;
+  private static final String[] COLORS = {"Red", "Green", "Blue"};
+
+  private FakeStore store;
+  private VoteCounter counter;
+
+  @Before
+  public void setUp() {
+    store = new FakeStore();
+    counter = new VoteCounter(store, NEVER);
+    counter.start();
+  }
+
+  @After
+  public void tearDown() {
+    counter.close();
+  }
+
+  @Test
+  public void concurrentVotesAreNeitherLostNorSavedTwice() throws Exception {
+    int threadCount = 8;
+    int votesPerThread = 60000;
+    // Every tenth write fails, so some votes have to wait for a later flush
+    store.failEvery = 10;
+    CountDownLatch ready = new CountDownLatch(threadCount);
+    AtomicBoolean voting = new AtomicBoolean(true);
+
+    List<Thread> voters = new ArrayList<>();
+    for (int t = 0; t < threadCount; t++) {
+      Thread voter =
+          new Thread(
+              () -> {
+                ready.countDown();
+                try {
+                  ready.await();
+                } catch (InterruptedException e) {
+                  throw new IllegalStateException(e);
+                }
+                for (int i = 0; i < votesPerThread; i++) {
+                  counter.add(COLORS[i % COLORS.length]);
+                }
+              });
+      voter.start();
+      voters.add(voter);
+    }
+    Thread flusher =
+        new Thread(
+            () -> {
+              while (voting.get()) {
+                counter.flush();
+              }
+            });
+    flusher.start();
+    for (Thread voter : voters) {
+      voter.join();
+    }
+    voting.set(false);
+    flusher.join();
+    store.failEvery = 0;
+    counter.close();
+
+    long expected = (long) threadCount * votesPerThread / COLORS.length;
+    for (String color : COLORS) {
+      Assert.assertEquals(expected, (long) counter.getVotes().get(color));
+      Assert.assertEquals(expected, (long) store.totals.get(color));
+    }
+  }
+
+  @Test
+  public void flushWritesEachChoiceOnce() {
+    counter.add("Red");
+    counter.add("Red");
+    counter.add("Blue");
+
+    Assert.assertEquals(2, counter.flush());
+    Assert.assertEquals(2, store.writes.get());
+    Assert.assertEquals(2L, (long) store.totals.get("Red"));
+    Assert.assertEquals(1L, (long) store.totals.get("Blue"));
+  }
+
+  @Test
+  public void flushWithoutNewVotesWritesNothing() {
+    counter.add("Red");
+    counter.flush();
+
+    Assert.assertEquals(0, counter.flush());
+    Assert.assertEquals(1, store.writes.get());
+  }
+
+  @Test
+  public void failedWriteIsRetried() {
+    store.failEvery = 1;
+    counter.add("Red");
+    Assert.assertEquals(0, counter.flush());
+
+    store.failEvery = 0;
+    counter.add("Red");
+    Assert.assertEquals(1, counter.flush());
+    Assert.assertEquals(2L, (long) store.totals.get("Red"));
+  }
+
+  @Test
+  public void restartContinuesFromTheStore() {
+    counter.add("Red");
+    counter.add("Green");
+    counter.close();
+
+    VoteCounter restarted = new VoteCounter(store, NEVER);
+    restarted.start();
+    restarted.add("Red");
+    restarted.close();
+
+    Map<String, Long> expected = new HashMap<>();
+    expected.put("Green", 1L);
+    expected.put("Red", 2L);
+    Assert.assertEquals(expected, restarted.getVotes());
+    Assert.assertEquals(expected, store.totals);
+  }
+
+  /** Keeps totals in memory, and can be made to fail some of its writes. */
+  private static final class FakeStore implements VoteCounter.Store {
+    private final Map<String, Long> totals = new ConcurrentHashMap<>();
+    private final AtomicInteger writes = new AtomicInteger();
+    private volatile int failEvery;
+
+    @Override
+    public Map<String, Long> load() {
+      return new HashMap<>(totals);
+    }
+
+    @Override
+    public void add(String choice, long votes) {
+      int write = writes.incrementAndGet();
+      if (failEvery > 0 && write % failEvery == 0) {
+        throw new IllegalStateException("Write " + write + " failed");
+      }
+      totals.merge(choice, votes, Long::sum);
+    }
+  }
+}
@@ -0,0 +1,138 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests writing events to one connection without blocking. */
+@RunWith(JUnit4.class)
+public final class EventBroadcasterTest {
+
+  private FakeOutputStream out;
+  private int closeCount;
+  private EventBroadcaster.Connection connection;
+
+  @Before
+  public void setUp() {
+    out = new FakeOutputStream();
+    closeCount = 0;
+    connection = new EventBroadcaster.Connection(out, bytes("first"), () -> closeCount++);
+  }
+
+  @Test
+  public void eventsAreWrittenInOrderAndFlushed() {
+    out.ready = true;
+    connection.start();
+
+    Assert.assertTrue(connection.offer(bytes("second")));
+
+    Assert.assertEquals("firstsecond", out.written());
+    Assert.assertEquals(2, out.flushCount);
+  }
+
+  @Test
+  public void eventsWaitUntilTheStreamIsReady() {
+    connection.start();
+    Assert.assertTrue(connection.offer(bytes("second")));
+    Assert.assertEquals("", out.written());
+
+    out.ready = true;
+    connection.onWritePossible();
+
+    Assert.assertEquals("firstsecond", out.written());
+    Assert.assertEquals(1, out.flushCount);
+  }
+
+  @Test
+  public void clientThatFallsBehindIsDropped() {
+    // The stream never gets ready, like a client that stopped reading
+    connection.start();
+    for (int i = 1; i < EventBroadcaster.MAX_PENDING_EVENTS; i++) {
+      Assert.assertTrue(connection.offer(bytes("event")));
+    }
+
+    Assert.assertFalse(connection.offer(bytes("event")));
+    Assert.assertFalse(connection.offer(bytes("event")));
+    Assert.assertEquals(1, closeCount);
+    Assert.assertEquals("", out.written());
+  }
+
+  @Test
+  public void failedWriteClosesTheConnection() {
+    out.ready = true;
+    out.failing = true;
+    connection.start();
+
+    Assert.assertFalse(connection.offer(bytes("second")));
+    Assert.assertEquals(1, closeCount);
+  }
+
+  private static byte[] bytes(String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Stream that is only ready when told to be, and calls its listener like a container would. */
+  private static final class FakeOutputStream extends ServletOutputStream {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private boolean ready;
+    private boolean failing;
+    private int flushCount;
+
+    @Override
+    public boolean isReady() {
+      return ready;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener listener) {
+      if (ready) {
+        try {
+          listener.onWritePossible();
+        } catch (IOException e) {
+          listener.onError(e);
+        }
+      }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (!ready) {
+        throw new IllegalStateException("Written while not ready");
+      }
+      if (failing) {
+        throw new IOException("Fake failure");
+      }
+      bytes.write(b);
+    }
+
+    @Override
+    public void flush() {
+      flushCount++;
+    }
+
+    private String written() {
+      return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+/**
+ * A map tile: at zoom level z the map is split into 2^z by 2^z tiles, numbered from x = 0 in the
+ * west and y = 0 in the north, like the tiles Google Maps loads.
+ */
+public final class Tile {
+
+  /** Tiles are not served beyond the deepest zoom level of Google Maps. */
+  public static final int MAX_ZOOM = 22;
+
+  private final int z;
+  private final int x;
+  private final int y;
+
+  public Tile(int z, int x, int y) {
+    if (z < 0 || z > MAX_ZOOM || x < 0 || x >= 1 << z || y < 0 || y >= 1 << z) {
+      throw new IllegalArgumentException("No such tile: " + z + "/" + x + "/" + y);
+    }
+    this.z = z;
+    this.x = x;
+    this.y = y;
+  }
+
+  /** Returns the tile at zoom that contains lat, lng. */
+  public static Tile containing(int zoom, double lat, double lng) {
+    int tilesPerSide = 1 << zoom;
+    return new Tile(
+        zoom,
+        MapProjection.cell(MapProjection.x(lng), tilesPerSide),
+        MapProjection.cell(MapProjection.y(lat), tilesPerSide));
+  }
+
+  /** Returns the tile for a path like "/4/2/5", or null if the path does not name a tile. */
+  public static Tile parse(String path) {
+    if (path == null) {
+      return null;
+    }
+    String[] parts = path.split("/");
+    if (parts.length != 4 || !parts[0].isEmpty()) {
+      return null;
+    }
+    try {
+      return new Tile(
+          Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+    } catch (IllegalArgumentException e) {
+      // Also catches NumberFormatException
+      System.err.println("Could not convert to tile: " + path);
+      return null;
+    }
+  }
+
+  public int getZ() {
+    return z;
+  }
+
+  public int getX() {
+    return x;
+  }
+
+  public int getY() {
+    return y;
+  }
+
+  /**
+   * Returns the latitude of the southern edge. The map ends short of the poles, so the bottom row
+   * of tiles reaches down to the south pole.
+   */
+  public double getSouth() {
+    return y == (1 << z) - 1 ? -90 : MapProjection.lat((double) (y + 1) / (1 << z));
+  }
+
+  /** Returns the latitude of the northern edge. The top row of tiles reaches the north pole. */
+  public double getNorth() {
+    return y == 0 ? 90 : MapProjection.lat((double) y / (1 << z));
+  }
+
+  /** Returns the longitude of the western edge. */
+  public double getWest() {
+    return MapProjection.lng((double) x / (1 << z));
+  }
+
+  /** Returns the longitude of the eastern edge. */
+  public double getEast() {
+    return MapProjection.lng((double) (x + 1) / (1 << z));
+  }
+
+  /**
+   * Returns true if lat, lng is in this tile. A point on the edge between two tiles is only in one
+   * of them.
+   */
+  public boolean contains(double lat, double lng) {
+    int tilesPerSide = 1 << z;
+    return MapProjection.cell(MapProjection.x(lng), tilesPerSide) == x
+        && MapProjection.cell(MapProjection.y(lat), tilesPerSide) == y;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof Tile)) {
+      return false;
+    }
+    Tile tile = (Tile) other;
+    return z == tile.z && x == tile.x && y == tile.y;
+  }
+
+  @Override
+  public int hashCode() {
+    return (z * 31 + x) * 31 + y;
+  }
+
+  @Override
+  public String toString() {
+    return z + "/" + x + "/" + y;
+  }
+}
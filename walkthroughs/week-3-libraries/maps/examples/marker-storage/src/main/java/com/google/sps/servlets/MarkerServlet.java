@@ -44,6 +44,11 @@ public class MarkerServlet extends HttpServlet {
     Gson gson = new Gson();
     String json = gson.toJson(markers);
 
+    // Markers can be added at any time, so the ETag comes from the JSON itself
+    String etag = HttpCaching.etag(json);
+    if (HttpCaching.notModified(request, response, etag, -1, HttpCaching.NO_CACHE)) {
+      return;
+    }
     response.getWriter().println(json);
   }
 
@@ -56,6 +61,12 @@ public class MarkerServlet extends HttpServlet {
 
     Marker marker = new Marker(lat, lng, content);
     storeMarker(marker);
+
+    // Tiles that already went out without the new marker must be generated again
+    TileCache tiles = TileCache.get(getServletContext());
+    if (tiles != null) {
+      tiles.invalidate(lat, lng);
+    }
   }
 
   /** Fetches markers from Datastore. */
@@ -0,0 +1,143 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.data.Tile;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import javax.servlet.ServletContext;
+
+/**
+ * Keeps the most recently used tiles in memory, up to a total number of bytes. A tile is only
+ * generated the first time it is requested, and again once it is older than the maximum age.
+ */
+final class TileCache {
+  private static final String ATTRIBUTE = TileCache.class.getName();
+
+  private final Function<Tile, byte[]> generator;
+  private final long maxBytes;
+  private final long maxAgeMillis;
+  private final LongSupplier clock;
+  // Access order puts the least recently used tile first
+  private final LinkedHashMap<Tile, CachedTile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+  private long bytes;
+
+  TileCache(Function<Tile, byte[]> generator, long maxBytes, long maxAgeMillis) {
+    this(generator, maxBytes, maxAgeMillis, System::currentTimeMillis);
+  }
+
+  TileCache(
+      Function<Tile, byte[]> generator, long maxBytes, long maxAgeMillis, LongSupplier clock) {
+    this.generator = generator;
+    this.maxBytes = maxBytes;
+    this.maxAgeMillis = maxAgeMillis;
+    this.clock = clock;
+  }
+
+  /** Returns the cache shared through context, or null if none was set. */
+  static TileCache get(ServletContext context) {
+    return (TileCache) context.getAttribute(ATTRIBUTE);
+  }
+
+  /** Shares cache with the other servlets of the web app. */
+  static void set(ServletContext context, TileCache cache) {
+    context.setAttribute(ATTRIBUTE, cache);
+  }
+
+  /** Returns tile, generating it if it is not cached. */
+  CachedTile get(Tile tile) {
+    long now = clock.getAsLong();
+    synchronized (this) {
+      CachedTile cached = tiles.get(tile);
+      if (cached != null && now - cached.generatedMillis < maxAgeMillis) {
+        return cached;
+      }
+    }
+
+    // Generated outside the lock so a slow tile does not hold up the others. Two requests for the
+    // same missing tile may both generate it, which only costs time.
+    byte[] data = generator.apply(tile);
+    CachedTile generated = new CachedTile(data, HttpCaching.etag(data), now);
+    synchronized (this) {
+      put(tile, generated);
+    }
+    return generated;
+  }
+
+  /** Drops tile, so the next request generates it again. */
+  synchronized void invalidate(Tile tile) {
+    CachedTile removed = tiles.remove(tile);
+    if (removed != null) {
+      bytes -= removed.data.length;
+    }
+  }
+
+  /** Drops the tile containing lat, lng at every zoom level. */
+  void invalidate(double lat, double lng) {
+    for (int zoom = 0; zoom <= Tile.MAX_ZOOM; zoom++) {
+      invalidate(Tile.containing(zoom, lat, lng));
+    }
+  }
+
+  /** Drops every tile. */
+  synchronized void clear() {
+    tiles.clear();
+    bytes = 0;
+  }
+
+  /** Returns the number of tiles cached. */
+  synchronized int size() {
+    return tiles.size();
+  }
+
+  private void put(Tile tile, CachedTile cached) {
+    invalidate(tile);
+    if (cached.data.length > maxBytes) {
+      // A tile bigger than the whole cache is served but not kept
+      return;
+    }
+    tiles.put(tile, cached);
+    bytes += cached.data.length;
+
+    Iterator<CachedTile> leastRecentlyUsed = tiles.values().iterator();
+    while (bytes > maxBytes) {
+      bytes -= leastRecentlyUsed.next().data.length;
+      leastRecentlyUsed.remove();
+    }
+  }
+
+  /** A generated tile and its ETag. */
+  static final class CachedTile {
+    private final byte[] data;
+    private final String etag;
+    private final long generatedMillis;
+
+    private CachedTile(byte[] data, String etag, long generatedMillis) {
+      this.data = data;
+      this.etag = etag;
+      this.generatedMillis = generatedMillis;
+    }
+
+    byte[] getData() {
+      return data;
+    }
+
+    String getEtag() {
+      return etag;
+    }
+  }
+}
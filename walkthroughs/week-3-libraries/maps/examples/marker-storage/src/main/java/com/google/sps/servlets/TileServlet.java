@@ -0,0 +1,92 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.CompositeFilterOperator;
+import com.google.appengine.api.datastore.Query.FilterOperator;
+import com.google.appengine.api.datastore.Query.FilterPredicate;
+import com.google.sps.data.Tile;
+import com.google.sps.data.TileWriter;
+import java.io.IOException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Returns the markers in one map tile, e.g. /tiles/4/2/5, in the binary format of TileWriter with
+ * the content of each marker after its position.
+ */
+@WebServlet("/tiles/*")
+public class TileServlet extends HttpServlet {
+
+  private static final long MAX_CACHE_BYTES = 4 * 1024 * 1024;
+  // MarkerServlet drops the tiles a new marker is in, but only on the instance that saved it, so
+  // the other instances read their tiles again after a minute
+  private static final long MAX_AGE_MILLIS = 60 * 1000;
+
+  private TileCache tiles;
+
+  @Override
+  public void init() {
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    tiles = new TileCache(tile -> writeTile(datastore, tile), MAX_CACHE_BYTES, MAX_AGE_MILLIS);
+    TileCache.set(getServletContext(), tiles);
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Tile tile = Tile.parse(request.getPathInfo());
+    if (tile == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND, "Tiles are at /tiles/{z}/{x}/{y}.");
+      return;
+    }
+
+    TileCache.CachedTile cached = tiles.get(tile);
+    response.setContentType("application/octet-stream");
+    if (HttpCaching.notModified(request, response, cached.getEtag(), -1, HttpCaching.NO_CACHE)) {
+      return;
+    }
+    response.setContentLength(cached.getData().length);
+    response.getOutputStream().write(cached.getData());
+  }
+
+  /** Reads the markers in tile from Datastore. */
+  private static byte[] writeTile(DatastoreService datastore, Tile tile) {
+    // Datastore filters the latitude range, the longitude is checked here
+    Query query =
+        new Query("Marker")
+            .setFilter(
+                CompositeFilterOperator.and(
+                    new FilterPredicate(
+                        "lat", FilterOperator.GREATER_THAN_OR_EQUAL, tile.getSouth()),
+                    new FilterPredicate(
+                        "lat", FilterOperator.LESS_THAN_OR_EQUAL, tile.getNorth())));
+
+    TileWriter writer = new TileWriter();
+    for (Entity entity : datastore.prepare(query).asIterable()) {
+      double lat = (double) entity.getProperty("lat");
+      double lng = (double) entity.getProperty("lng");
+      if (tile.contains(lat, lng)) {
+        writer.addPoint(lat, lng, (String) entity.getProperty("content"));
+      }
+    }
+    return writer.toByteArray();
+  }
+}
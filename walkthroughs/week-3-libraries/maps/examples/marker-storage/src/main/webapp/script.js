@@ -29,18 +29,110 @@ function createMap() {
     createMarkerForEdit(event.latLng.lat(), event.latLng.lng());
   });
 
-  fetchMarkers();
+  // Markers are fetched one tile at a time, again every time the map stops moving
+  map.addListener('idle', fetchMarkers);
 }
 
-/** Fetches markers from the backend and adds them to the map. */
+/** Markers of the tiles shown so far, by tile path. */
+const tileMarkers = new Map();
+
+/** Fetches the markers of the tiles in view that are not shown yet and adds them to the map. */
 function fetchMarkers() {
-  fetch('/markers').then(response => response.json()).then((markers) => {
-    markers.forEach(
-        (marker) => {
-            createMarkerForDisplay(marker.lat, marker.lng, marker.content)});
+  const bounds = map.getBounds();
+  const paths = visibleTiles(
+      map.getZoom(), bounds.getSouthWest().lat(), bounds.getSouthWest().lng(),
+      bounds.getNorthEast().lat(), bounds.getNorthEast().lng());
+
+  Array.from(tileMarkers.keys()).forEach((path) => {
+    if (!paths.has(path)) {
+      tileMarkers.get(path).forEach((marker) => marker.setMap(null));
+      tileMarkers.delete(path);
+    }
+  });
+  paths.forEach((path) => {
+    if (tileMarkers.has(path)) {
+      return;
+    }
+    tileMarkers.set(path, []);
+    fetch('/tiles/' + path)
+        .then(response => response.arrayBuffer())
+        .then((buffer) => {
+          if (!tileMarkers.has(path)) {
+            return;
+          }
+          tileMarkers.set(path, decodeTile(buffer).map(
+              (marker) => createMarkerForDisplay(
+                  marker.lat, marker.lng, marker.content)));
+        });
   });
 }
 
+/** Returns the paths, like "8/41/99", of the tiles that overlap the box. */
+function visibleTiles(zoom, south, west, north, east) {
+  const tilesPerSide = 1 << zoom;
+  const tileX = (lng) => clamp(Math.floor((lng + 180) / 360 * tilesPerSide), tilesPerSide);
+  const tileY = (lat) => {
+    const sin = Math.sin(lat * Math.PI / 180);
+    const y = 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    return clamp(Math.floor(y * tilesPerSide), tilesPerSide);
+  };
+
+  const paths = new Set();
+  const minX = tileX(west);
+  // A box that crosses the antimeridian wraps around to the first column
+  const columns = (tileX(east) - minX + tilesPerSide) % tilesPerSide + 1;
+  for (let i = 0; i < columns; i++) {
+    for (let y = tileY(north); y <= tileY(south); y++) {
+      paths.add(zoom + '/' + (minX + i) % tilesPerSide + '/' + y);
+    }
+  }
+  return paths;
+}
+
+function clamp(tile, tilesPerSide) {
+  return Math.max(0, Math.min(tilesPerSide - 1, tile));
+}
+
+/**
+ * Returns the {lat, lng, content} markers of a tile in the binary format of
+ * TileWriter.
+ */
+function decodeTile(buffer) {
+  const bytes = new Uint8Array(buffer);
+  let offset = 0;
+  const readVarint = () => {
+    // Plain arithmetic instead of bit operators, which would cut numbers to 32 bits
+    let value = 0;
+    let scale = 1;
+    let byte;
+    do {
+      byte = bytes[offset++];
+      value += (byte & 0x7f) * scale;
+      scale *= 128;
+    } while (byte & 0x80);
+    return value;
+  };
+  const readSigned = () => {
+    const zigzag = readVarint();
+    return zigzag % 2 === 0 ? zigzag / 2 : -(zigzag + 1) / 2;
+  };
+  const decoder = new TextDecoder();
+
+  const markers = [];
+  const count = readVarint();
+  let lat = 0;
+  let lng = 0;
+  for (let i = 0; i < count; i++) {
+    lat += readSigned();
+    lng += readSigned();
+    const length = readVarint();
+    const content = decoder.decode(bytes.subarray(offset, offset + length));
+    offset += length;
+    markers.push({lat: lat / 1e6, lng: lng / 1e6, content: content});
+  }
+  return markers;
+}
+
 /** Creates a marker that shows a read-only info window when clicked. */
 function createMarkerForDisplay(lat, lng, content) {
   const marker =
@@ -50,6 +142,7 @@ function createMarkerForDisplay(lat, lng, content) {
   marker.addListener('click', () => {
     infoWindow.open(map, marker);
   });
+  return marker;
 }
 
 /** Sends a marker to the backend for saving. */
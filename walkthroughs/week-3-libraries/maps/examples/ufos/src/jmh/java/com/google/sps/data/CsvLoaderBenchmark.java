@@ -0,0 +1,130 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares loading a generated CSV of sightings with CsvLoader and with Scanner, String.split and
+ * Double.parseDouble, which the servlets used before.
+ *
+ * <p>Each benchmark loads the whole file once per iteration. Run from this directory with:
+ *
+ * <pre>mvn -P jmh test-compile exec:exec -Djmh.args="CsvLoaderBenchmark"</pre>
+ *
+ * Add e.g. -p rows=100000 for a quicker run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CsvLoaderBenchmark {
+
+  @Param({"10000000"})
+  public int rows;
+
+  private Path file;
+
+  @Setup
+  public void setUp() throws IOException {
+    // Coordinates with 7 decimals, like ufo-data.csv
+    file = Files.createTempFile("sightings", ".csv");
+    Random random = new Random(42);
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      for (int i = 0; i < rows; i++) {
+        double lat = random.nextDouble() * 180 - 90;
+        double lng = random.nextDouble() * 360 - 180;
+        writer.write(String.format(Locale.ROOT, "%.7f,%.7f\n", lat, lng));
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.delete(file);
+  }
+
+  /** How UfoDataServlet.init and BigfootDataServlet.init read their CSVs before CsvLoader. */
+  @Benchmark
+  public List<Sighting> scannerSplit() throws IOException {
+    List<Sighting> sightings = new ArrayList<>();
+    try (InputStream csv = Files.newInputStream(file);
+        Scanner scanner = new Scanner(csv)) {
+      while (scanner.hasNextLine()) {
+        String line = scanner.nextLine();
+        String[] cells = line.split(",");
+
+        double lat = Double.parseDouble(cells[0]);
+        double lng = Double.parseDouble(cells[1]);
+
+        sightings.add(new Sighting(lat, lng));
+      }
+    }
+    return sightings;
+  }
+
+  /** Parses the memory-mapped file on one thread, to tell the parser apart from the threads. */
+  @Benchmark
+  public double[][] csvLoaderOneChunk() throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return CsvLoader.parse(data, 2, 1);
+    }
+  }
+
+  @Benchmark
+  public double[][] csvLoader() throws IOException {
+    return CsvLoader.load(file, 2);
+  }
+
+  /** The class the sightings used to be held in. */
+  public static final class Sighting {
+    private final double lat;
+    private final double lng;
+
+    private Sighting(double lat, double lng) {
+      this.lat = lat;
+      this.lng = lng;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares how long a new instance takes to load the sightings from the binary copy made by the
+ * build and from the CSV.
+ *
+ * <p>Every fork is a fresh JVM that loads the file once, with nothing warmed up, like the first
+ * request to a new App Engine instance. Run from this directory with:
+ *
+ * <pre>mvn -P jmh test-compile exec:exec -Djmh.args="UfoSightingsFileBenchmark"</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class UfoSightingsFileBenchmark {
+
+  // About as many rows as ufo-data.csv, and a dataset that grew
+  @Param({"5000", "1000000"})
+  public int rows;
+
+  private Path csv;
+  private Path binary;
+
+  @Setup
+  public void setUp() throws IOException {
+    csv = Files.createTempFile("sightings", ".csv");
+    binary = Files.createTempFile("sightings", ".bin");
+    Random random = new Random(42);
+    UfoSightings.Builder sightings = new UfoSightings.Builder();
+    try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+      for (int i = 0; i < rows; i++) {
+        // Rounded like the CSV, so both files hold the same numbers
+        String line =
+            String.format(
+                Locale.ROOT,
+                "%.7f,%.7f",
+                random.nextDouble() * 180 - 90,
+                random.nextDouble() * 360 - 180);
+        String[] cells = line.split(",");
+        sightings.add(Double.parseDouble(cells[0]), Double.parseDouble(cells[1]));
+        writer.write(line);
+        writer.write('\n');
+      }
+    }
+    // Written without CsvLoader, so the CSV path is as cold as the binary one when measured
+    byte[] bytes =
+        UfoSightingsFile.toBytes(
+            sightings.build(), Files.size(csv), UfoSightingsFile.checksum(csv));
+    Files.write(binary, bytes);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.delete(csv);
+    Files.delete(binary);
+  }
+
+  /** What UfoDataListener does first, including checking the copy against the CSV. */
+  @Benchmark
+  public UfoSightings binaryFile() throws IOException {
+    return UfoSightingsFile.read(binary, csv);
+  }
+
+  /** What UfoDataListener falls back to when there is no usable copy. */
+  @Benchmark
+  public UfoSightings csvFile() throws IOException {
+    double[][] columns = CsvLoader.load(csv, 2);
+    return new UfoSightings(columns[0], columns[1]);
+  }
+}
@@ -0,0 +1,109 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.data.UfoDataset;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput of sending all UFO sightings through GzipFilter uncompressed, gzipped
+ * as they are written, and gzipped once ahead of time like UfoDataServlet does.
+ *
+ * <p>Run from this directory with:
+ *
+ * <pre>mvn -P jmh test-compile exec:exec -Djmh.args="GzipFilterBenchmark"</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GzipFilterBenchmark {
+
+  @Param({"src/main/webapp/WEB-INF/ufo-data.csv"})
+  public String csv;
+
+  private final GzipFilter filter = new GzipFilter();
+  private byte[] json;
+  private byte[] gzippedJson;
+  private HttpServletRequest plainRequest;
+  private HttpServletRequest gzipRequest;
+  private ServletStubs.CountingOutputStream out;
+  private HttpServletResponse response;
+
+  @Setup
+  public void setUp() throws IOException {
+    UfoSnapshot snapshot = new UfoSnapshot(UfoDataset.load(Paths.get(csv)));
+    json = snapshot.getJson();
+    gzippedJson = snapshot.getGzippedJson();
+    plainRequest = ServletStubs.request(Collections.emptyMap());
+    gzipRequest =
+        ServletStubs.request(Collections.singletonMap("Accept-Encoding", "gzip, deflate, br"));
+    out = new ServletStubs.CountingOutputStream();
+    response = ServletStubs.response(out);
+  }
+
+  /** A client that does not accept gzip gets the JSON as is. */
+  @Benchmark
+  public long uncompressed() throws IOException, ServletException {
+    filter.doFilter(plainRequest, response, writing(json, false));
+    return out.getCount();
+  }
+
+  /** The servlet writes plain JSON and the filter compresses it on the way out. */
+  @Benchmark
+  public long streamingGzip() throws IOException, ServletException {
+    filter.doFilter(gzipRequest, response, writing(json, false));
+    return out.getCount();
+  }
+
+  /** The servlet writes bytes it compressed before, which the filter passes through. */
+  @Benchmark
+  public long precompressed() throws IOException, ServletException {
+    filter.doFilter(gzipRequest, response, writing(gzippedJson, true));
+    return out.getCount();
+  }
+
+  /** Returns a servlet that writes body, marking it as gzipped if it already is. */
+  private static FilterChain writing(byte[] body, boolean gzipped) {
+    return (request, response) -> {
+      HttpServletResponse httpResponse = (HttpServletResponse) response;
+      if (gzipped) {
+        httpResponse.setHeader("Content-Encoding", "gzip");
+      }
+      httpResponse.setContentLength(body.length);
+      httpResponse.getOutputStream().write(body);
+    };
+  }
+}
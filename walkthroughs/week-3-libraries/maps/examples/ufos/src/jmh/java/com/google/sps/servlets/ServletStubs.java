@@ -0,0 +1,139 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Just enough of a servlet container to call filters and servlets from benchmarks. Methods that
+ * are not stubbed do nothing and return null, false or 0.
+ */
+final class ServletStubs {
+
+  private ServletStubs() {}
+
+  /** Returns a GET request with the given headers and no parameters. */
+  static HttpServletRequest request(Map<String, String> headers) {
+    Map<String, Object> answers = new HashMap<>();
+    answers.put("getMethod", "GET");
+    answers.put("getDateHeader", -1L);
+    return stub(
+        HttpServletRequest.class,
+        answers,
+        (name, args) -> name.equals("getHeader") ? headers.get((String) args[0]) : null);
+  }
+
+  /** Returns a response that writes its body to out. */
+  static HttpServletResponse response(CountingOutputStream out) {
+    PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    Map<String, Object> answers = new HashMap<>();
+    answers.put("getOutputStream", out);
+    answers.put("getWriter", writer);
+    answers.put("getCharacterEncoding", "UTF-8");
+    return stub(HttpServletResponse.class, answers, (name, args) -> null);
+  }
+
+  /** Returns the config of a servlet in a context with the given attributes. */
+  static ServletConfig config(Map<String, Object> attributes) {
+    ServletContext context =
+        stub(
+            ServletContext.class,
+            new HashMap<>(),
+            (name, args) -> name.equals("getAttribute") ? attributes.get((String) args[0]) : null);
+    Map<String, Object> answers = new HashMap<>();
+    answers.put("getServletContext", context);
+    return stub(ServletConfig.class, answers, (name, args) -> null);
+  }
+
+  /** Answers calls that depend on their arguments. */
+  private interface Answer {
+    Object answer(String method, Object[] args);
+  }
+
+  private static <T> T stub(Class<T> type, Map<String, Object> answers, Answer answer) {
+    Object proxy =
+        Proxy.newProxyInstance(
+            type.getClassLoader(),
+            new Class<?>[] {type},
+            (self, method, args) -> {
+              String name = method.getName();
+              Object result =
+                  answers.containsKey(name) ? answers.get(name) : answer.answer(name, args);
+              if (result != null || !method.getReturnType().isPrimitive()) {
+                return result;
+              }
+              Class<?> returnType = method.getReturnType();
+              if (returnType == boolean.class) {
+                return false;
+              } else if (returnType == long.class) {
+                return 0L;
+              } else if (returnType == int.class) {
+                return 0;
+              }
+              return null;
+            });
+    return type.cast(proxy);
+  }
+
+  /**
+   * Output stream that copies the body into a buffer, like a container would before sending it,
+   * and keeps only its length.
+   */
+  static final class CountingOutputStream extends ServletOutputStream {
+    private final byte[] buffer = new byte[8192];
+    private long count;
+
+    /** Returns how many bytes were written. */
+    long getCount() {
+      return count;
+    }
+
+    @Override
+    public void write(int b) {
+      buffer[(int) (count++ % buffer.length)] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      while (len > 0) {
+        int start = (int) (count % buffer.length);
+        int n = Math.min(len, buffer.length - start);
+        System.arraycopy(b, off, buffer, start, n);
+        count += n;
+        off += n;
+        len -= n;
+      }
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {}
+  }
+}
@@ -0,0 +1,126 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.Gson;
+import com.google.sps.data.DatasetManager;
+import com.google.sps.data.UfoDataset;
+import com.google.sps.data.UfoSightings;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares serving all UFO sightings by serializing them with Gson on every request, as
+ * UfoDataServlet used to, with UfoDataServlet.doGet writing the JSON encoded with the snapshot.
+ *
+ * <p>Run from this directory with the GC profiler, which reports the bytes allocated per request
+ * as gc.alloc.rate.norm:
+ *
+ * <pre>mvn -P jmh test-compile exec:exec -Djmh.args="UfoDataServletBenchmark -prof gc"</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UfoDataServletBenchmark {
+
+  @Param({"src/main/webapp/WEB-INF/ufo-data.csv"})
+  public String csv;
+
+  private Collection<Sighting> sightings;
+  private DatasetManager<UfoSnapshot> snapshots;
+  private UfoDataServlet servlet;
+  private HttpServletRequest request;
+  private ServletStubs.CountingOutputStream out;
+  private HttpServletResponse response;
+
+  @Setup
+  public void setUp() throws IOException, ServletException {
+    Path file = Paths.get(csv);
+    UfoSightings loaded = UfoDataset.load(file).getSightings();
+    sightings = new ArrayList<>();
+    for (int i = 0; i < loaded.size(); i++) {
+      sightings.add(new Sighting(loaded.getLat(i), loaded.getLng(i)));
+    }
+
+    // Without a file to watch the first snapshot is kept, like an app that is not unpacked
+    snapshots = new DatasetManager<>(() -> new UfoSnapshot(UfoDataset.load(file)), null, 0);
+    snapshots.start();
+    servlet = new UfoDataServlet();
+    // The attribute UfoDataListener shares the snapshots under
+    servlet.init(
+        ServletStubs.config(
+            Collections.singletonMap(UfoSnapshot.class.getName(), (Object) snapshots)));
+
+    request = ServletStubs.request(Collections.emptyMap());
+    out = new ServletStubs.CountingOutputStream();
+    response = ServletStubs.response(out);
+  }
+
+  @TearDown
+  public void tearDown() {
+    snapshots.close();
+  }
+
+  /** What doGet did before: a new Gson and a new JSON string for every request. */
+  @Benchmark
+  public long gsonPerRequest() throws IOException {
+    response.setContentType("application/json");
+    Gson gson = new Gson();
+    String json = gson.toJson(sightings);
+    response.getWriter().println(json);
+    response.getWriter().flush();
+    return out.getCount();
+  }
+
+  @Benchmark
+  public long precomputedBytes() throws IOException {
+    servlet.doGet(request, response);
+    return out.getCount();
+  }
+
+  /** The class the sightings used to be held in. */
+  private static final class Sighting {
+    private final double lat;
+    private final double lng;
+
+    private Sighting(double lat, double lng) {
+      this.lat = lat;
+      this.lng = lng;
+    }
+  }
+}
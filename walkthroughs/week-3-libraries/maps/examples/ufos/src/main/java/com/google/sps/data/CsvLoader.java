@@ -0,0 +1,282 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Loads CSV files of numbers, like "38.4404675,-122.7144313", into one array per column.
+ *
+ * <p>Numbers are parsed straight from the bytes of the file, without creating a String per line
+ * or per cell. Files are memory-mapped when they are on disk, and big files are split at line
+ * breaks into chunks that are parsed in parallel.
+ */
+public final class CsvLoader {
+
+  // Smaller files are parsed faster on one thread than the chunks can be handed out
+  private static final int MIN_CHUNK_BYTES = 1024 * 1024;
+
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private CsvLoader() {}
+
+  /**
+   * Returns the first columnCount columns of the file, with element i of column c holding the
+   * number in row i, column c. Blank lines are skipped and extra columns are ignored.
+   *
+   * @throws NumberFormatException if a row has too few columns or a cell is not a number
+   */
+  public static double[][] load(Path file, int columnCount) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return parse(data, columnCount, chunkCount(data.remaining()));
+    }
+  }
+
+  /** Like load(Path, int), for files that are not on disk, e.g. inside a WAR. */
+  public static double[][] load(InputStream csv, int columnCount) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[64 * 1024];
+    for (int read = csv.read(buffer); read != -1; read = csv.read(buffer)) {
+      bytes.write(buffer, 0, read);
+    }
+    ByteBuffer data = ByteBuffer.wrap(bytes.toByteArray());
+    return parse(data, columnCount, chunkCount(data.remaining()));
+  }
+
+  private static int chunkCount(int size) {
+    int processors = Runtime.getRuntime().availableProcessors();
+    return Math.max(1, Math.min(processors, size / MIN_CHUNK_BYTES));
+  }
+
+  /** Parses data, split into at most chunkCount chunks that are parsed in parallel. */
+  static double[][] parse(ByteBuffer data, int columnCount, int chunkCount) {
+    // Each chunk ends just after a line break, so no line is split between two chunks
+    int size = data.limit();
+    int[] starts = new int[chunkCount + 1];
+    starts[chunkCount] = size;
+    for (int i = 1; i < chunkCount; i++) {
+      int start = Math.max(starts[i - 1], (int) ((long) size * i / chunkCount));
+      while (start < size && start > 0 && data.get(start - 1) != '\n') {
+        start++;
+      }
+      starts[i] = start;
+    }
+
+    Chunk[] chunks = new Chunk[chunkCount];
+    IntStream.range(0, chunkCount)
+        .parallel()
+        .forEach(i -> chunks[i] = new Chunk(data, starts[i], starts[i + 1], columnCount));
+
+    int rowCount = 0;
+    for (Chunk chunk : chunks) {
+      rowCount += chunk.rowCount;
+    }
+    double[][] columns = new double[columnCount][rowCount];
+    int row = 0;
+    for (Chunk chunk : chunks) {
+      for (int c = 0; c < columnCount; c++) {
+        System.arraycopy(chunk.columns[c], 0, columns[c], row, chunk.rowCount);
+      }
+      row += chunk.rowCount;
+    }
+    return columns;
+  }
+
+  /** The rows of one part of the file. */
+  private static final class Chunk {
+    private final ByteBuffer data;
+    private final int end;
+    private double[][] columns;
+    private int rowCount;
+    private int position;
+
+    private Chunk(ByteBuffer data, int start, int end, int columnCount) {
+      this.data = data;
+      this.end = end;
+      // A guess at the row count, assuming rows of about 24 bytes
+      int capacity = Math.max(16, (end - start) / 24);
+      columns = new double[columnCount][capacity];
+      position = start;
+      while (position < end) {
+        parseLine();
+      }
+    }
+
+    private void parseLine() {
+      int lineStart = position;
+      skipSpaces();
+      if (position == end || data.get(position) == '\n' || data.get(position) == '\r') {
+        // Blank line
+        skipLine();
+        return;
+      }
+
+      if (rowCount == columns[0].length) {
+        for (int c = 0; c < columns.length; c++) {
+          columns[c] = Arrays.copyOf(columns[c], rowCount * 2);
+        }
+      }
+      for (int c = 0; c < columns.length; c++) {
+        if (c > 0) {
+          if (position == end || data.get(position) != ',') {
+            throw invalidLine(lineStart);
+          }
+          position++;
+        }
+        columns[c][rowCount] = parseNumber(lineStart);
+      }
+      rowCount++;
+      skipLine();
+    }
+
+    /** Parses the number at the current position and moves past it. */
+    private double parseNumber(int lineStart) {
+      skipSpaces();
+      int start = position;
+      boolean negative = false;
+      if (position < end && (data.get(position) == '-' || data.get(position) == '+')) {
+        negative = data.get(position) == '-';
+        position++;
+      }
+
+      long mantissa = 0;
+      int digits = 0;
+      int exponent = 0;
+      boolean seenDigit = false;
+      boolean seenPoint = false;
+      for (; position < end; position++) {
+        byte b = data.get(position);
+        if (b >= '0' && b <= '9') {
+          seenDigit = true;
+          // Leading zeros do not count towards the digits that fit in a long
+          if (mantissa == 0 && b == '0') {
+            if (seenPoint) {
+              exponent--;
+            }
+            continue;
+          }
+          if (digits < 18) {
+            mantissa = mantissa * 10 + (b - '0');
+            digits++;
+            if (seenPoint) {
+              exponent--;
+            }
+          } else {
+            // Digits beyond what a long holds are only counted
+            digits++;
+            if (!seenPoint) {
+              exponent++;
+            }
+          }
+        } else if (b == '.' && !seenPoint) {
+          seenPoint = true;
+        } else {
+          break;
+        }
+      }
+      if (!seenDigit) {
+        throw invalidLine(lineStart);
+      }
+      if (position < end && (data.get(position) == 'e' || data.get(position) == 'E')) {
+        // Rare enough to leave to the JDK
+        return slowParse(start, lineStart);
+      }
+      int numberEnd = position;
+      skipSpaces();
+      if (position < end
+          && data.get(position) != ','
+          && data.get(position) != '\n'
+          && data.get(position) != '\r') {
+        throw invalidLine(lineStart);
+      }
+
+      // Up to 15 digits and powers of ten up to 22 are exact doubles, so one multiplication or
+      // division rounds correctly, just like Double.parseDouble
+      double value;
+      if (digits <= 15 && exponent >= -22 && exponent <= 22) {
+        value =
+            exponent < 0
+                ? mantissa / POWERS_OF_TEN[-exponent]
+                : mantissa * POWERS_OF_TEN[exponent];
+      } else {
+        position = start;
+        value = Math.abs(slowParse(start, lineStart));
+        position = numberEnd;
+        skipSpaces();
+      }
+      return negative ? -value : value;
+    }
+
+    /** Parses the cell starting at start with Double.parseDouble. */
+    private double slowParse(int start, int lineStart) {
+      position = start;
+      while (position < end
+          && data.get(position) != ','
+          && data.get(position) != '\n'
+          && data.get(position) != '\r') {
+        position++;
+      }
+      byte[] cell = new byte[position - start];
+      for (int i = 0; i < cell.length; i++) {
+        cell[i] = data.get(start + i);
+      }
+      try {
+        return Double.parseDouble(new String(cell, StandardCharsets.US_ASCII));
+      } catch (NumberFormatException e) {
+        throw invalidLine(lineStart);
+      }
+    }
+
+    private void skipSpaces() {
+      while (position < end && (data.get(position) == ' ' || data.get(position) == '\t')) {
+        position++;
+      }
+    }
+
+    /** Moves past the next line break, ignoring anything before it. */
+    private void skipLine() {
+      while (position < end && data.get(position) != '\n') {
+        position++;
+      }
+      position++;
+    }
+
+    private NumberFormatException invalidLine(int lineStart) {
+      int lineEnd = lineStart;
+      while (lineEnd < end && data.get(lineEnd) != '\n' && data.get(lineEnd) != '\r') {
+        lineEnd++;
+      }
+      byte[] line = new byte[lineEnd - lineStart];
+      for (int i = 0; i < line.length; i++) {
+        line[i] = data.get(lineStart + i);
+      }
+      return new NumberFormatException(
+          "Could not convert to numbers: " + new String(line, StandardCharsets.UTF_8));
+    }
+  }
+}
@@ -0,0 +1,56 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+/**
+ * The Web Mercator projection used by Google Maps. The world is a square from (0, 0) in the
+ * north-west corner to (1, 1) in the south-east corner, and at zoom level z it is split into 2^z by
+ * 2^z tiles.
+ */
+final class MapProjection {
+
+  /** Latitudes further from the equator than this fall outside the square map. */
+  static final double MAX_LAT = 85.05112878;
+
+  private MapProjection() {}
+
+  /** Returns how far east lng is on the map, from 0 at -180 to 1 at 180. */
+  static double x(double lng) {
+    return (lng + 180) / 360;
+  }
+
+  /** Returns how far south lat is on the map, from 0 at the top to 1 at the bottom. */
+  static double y(double lat) {
+    double clamped = Math.max(-MAX_LAT, Math.min(MAX_LAT, lat));
+    double sin = Math.sin(Math.toRadians(clamped));
+    return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+  }
+
+  /** Returns the longitude of the map position x. */
+  static double lng(double x) {
+    return x * 360 - 180;
+  }
+
+  /** Returns the latitude of the map position y. */
+  static double lat(double y) {
+    return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+  }
+
+  /** Returns the column or row, out of cellsPerSide, that the map position is in. */
+  static int cell(double position, int cellsPerSide) {
+    int cell = (int) Math.floor(position * cellsPerSide);
+    return Math.max(0, Math.min(cellsPerSide - 1, cell));
+  }
+}
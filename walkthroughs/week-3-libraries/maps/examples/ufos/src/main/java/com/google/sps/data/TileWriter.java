@@ -0,0 +1,84 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Packs the points of a tile into a compact binary format.
+ *
+ * <p>A tile starts with the number of points. Each point is its latitude and longitude in
+ * millionths of a degree, stored as the difference from the previous point (or from 0, 0 for the
+ * first one). Points in one tile are close together, so the differences are small. Every number is
+ * a zigzag varint: the sign moves to the lowest bit, then 7 bits go in each byte, lowest first,
+ * with the top bit set on every byte but the last. A point may be followed by a text, stored as
+ * its length in UTF-8 bytes and then the bytes.
+ */
+public final class TileWriter {
+  private static final double MICRODEGREES = 1e6;
+
+  private final ByteArrayOutputStream points = new ByteArrayOutputStream();
+  private int count;
+  private long lastLat;
+  private long lastLng;
+
+  /** Adds a point at lat, lng. */
+  public TileWriter addPoint(double lat, double lng) {
+    long microLat = Math.round(lat * MICRODEGREES);
+    long microLng = Math.round(lng * MICRODEGREES);
+    writeVarint(points, zigzag(microLat - lastLat));
+    writeVarint(points, zigzag(microLng - lastLng));
+    lastLat = microLat;
+    lastLng = microLng;
+    count++;
+    return this;
+  }
+
+  /** Adds a point at lat, lng followed by text. */
+  public TileWriter addPoint(double lat, double lng, String text) {
+    addPoint(lat, lng);
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    writeVarint(points, bytes.length);
+    points.write(bytes, 0, bytes.length);
+    return this;
+  }
+
+  /** Returns the number of points added so far. */
+  public int getCount() {
+    return count;
+  }
+
+  /** Returns the tile. */
+  public byte[] toByteArray() {
+    ByteArrayOutputStream tile = new ByteArrayOutputStream(points.size() + 5);
+    writeVarint(tile, count);
+    byte[] body = points.toByteArray();
+    tile.write(body, 0, body.length);
+    return tile.toByteArray();
+  }
+
+  private static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static void writeVarint(ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7fL) != 0) {
+      out.write((int) ((value & 0x7f) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+}
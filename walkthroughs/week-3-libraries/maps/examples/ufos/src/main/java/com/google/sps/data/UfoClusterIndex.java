@@ -0,0 +1,242 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.Arrays;
+
+/**
+ * Clusters UFO sightings for each map zoom level, so zoomed out maps get a few hundred clusters
+ * instead of every sighting.
+ *
+ * <p>At every zoom level the map is split into a grid of cells, 4 by 4 per 256 pixel tile. All
+ * the sightings in a cell make one cluster. The grids are built once, from the finest level up,
+ * by merging each 2 by 2 block of cells into the cell that contains it on the level above.
+ */
+public final class UfoClusterIndex {
+
+  /** Zoom levels above this get the clusters of this level, which are only meters wide. */
+  public static final int MAX_ZOOM = 16;
+
+  /** A query never returns more clusters than this, whatever the size of its box. */
+  public static final int MAX_CLUSTERS = 1024;
+
+  // Each tile is split into 2^CELL_BITS by 2^CELL_BITS cells, so cells are 64 pixels wide
+  private static final int CELL_BITS = 2;
+  // Room left below the cell of a sighting for its index while sorting
+  private static final int INDEX_BITS = 63 - 2 * (MAX_ZOOM + CELL_BITS);
+
+  private final Level[] levels = new Level[MAX_ZOOM + 1];
+
+  public UfoClusterIndex(UfoSightings sightings) {
+    int size = sightings.size();
+    if (size >= 1 << INDEX_BITS) {
+      throw new IllegalArgumentException("Too many sightings to cluster: " + size);
+    }
+
+    // Sorting cell and index packed into one long puts the sightings in cell order
+    int bits = MAX_ZOOM + CELL_BITS;
+    long[] sorted = new long[size];
+    for (int i = 0; i < size; i++) {
+      int x = MapProjection.cell(MapProjection.x(sightings.getLng(i)), 1 << bits);
+      int y = MapProjection.cell(MapProjection.y(sightings.getLat(i)), 1 << bits);
+      sorted[i] = interleave(x, y) << INDEX_BITS | i;
+    }
+    Arrays.sort(sorted);
+
+    Level finest = new Level(size);
+    for (long packed : sorted) {
+      int i = (int) (packed & ((1L << INDEX_BITS) - 1));
+      finest.add(packed >>> INDEX_BITS, sightings.getLat(i), sightings.getLng(i), 1);
+    }
+    levels[MAX_ZOOM] = finest;
+    for (int zoom = MAX_ZOOM - 1; zoom >= 0; zoom--) {
+      levels[zoom] = levels[zoom + 1].merge();
+    }
+  }
+
+  /**
+   * Returns the clusters at zoom in the cells that overlap the box. If west is greater than east
+   * the box crosses the antimeridian and wraps around from west to east. If the box covers more
+   * than MAX_CLUSTERS cells, a lower zoom level is used instead.
+   */
+  public UfoClusters query(int zoom, double south, double west, double north, double east) {
+    zoom = Math.max(0, Math.min(MAX_ZOOM, zoom));
+    while (zoom > 0 && cellCount(zoom, south, west, north, east) > MAX_CLUSTERS) {
+      zoom--;
+    }
+
+    int cellsPerSide = 1 << (zoom + CELL_BITS);
+    int minX = MapProjection.cell(MapProjection.x(west), cellsPerSide);
+    int maxX = MapProjection.cell(MapProjection.x(east), cellsPerSide);
+    int minY = MapProjection.cell(MapProjection.y(north), cellsPerSide);
+    int maxY = MapProjection.cell(MapProjection.y(south), cellsPerSide);
+
+    UfoClusters.Builder clusters = new UfoClusters.Builder();
+    if (west <= east) {
+      levels[zoom].query(minX, minY, maxX, maxY, clusters);
+    } else {
+      levels[zoom].query(minX, minY, cellsPerSide - 1, maxY, clusters);
+      levels[zoom].query(0, minY, maxX, maxY, clusters);
+    }
+    return clusters.build();
+  }
+
+  /** Returns the number of grid cells the box overlaps at zoom. */
+  private static long cellCount(int zoom, double south, double west, double north, double east) {
+    int cellsPerSide = 1 << (zoom + CELL_BITS);
+    long columns =
+        MapProjection.cell(MapProjection.x(east), cellsPerSide)
+            - MapProjection.cell(MapProjection.x(west), cellsPerSide)
+            + 1;
+    if (west > east) {
+      columns += cellsPerSide;
+    }
+    long rows =
+        MapProjection.cell(MapProjection.y(south), cellsPerSide)
+            - MapProjection.cell(MapProjection.y(north), cellsPerSide)
+            + 1;
+    return Math.max(0, columns) * Math.max(0, rows);
+  }
+
+  /** Returns the Z-order code of cell (x, y): the bits of x and y interleaved. */
+  private static long interleave(int x, int y) {
+    return spread(x) | spread(y) << 1;
+  }
+
+  /** Returns the bits of value with a zero bit inserted after each one. */
+  private static long spread(int value) {
+    long bits = value & 0xffffffffL;
+    bits = (bits | bits << 16) & 0x0000ffff0000ffffL;
+    bits = (bits | bits << 8) & 0x00ff00ff00ff00ffL;
+    bits = (bits | bits << 4) & 0x0f0f0f0f0f0f0f0fL;
+    bits = (bits | bits << 2) & 0x3333333333333333L;
+    bits = (bits | bits << 1) & 0x5555555555555555L;
+    return bits;
+  }
+
+  /** Returns every other bit of code, starting with the lowest one. */
+  private static int compact(long code) {
+    long bits = code & 0x5555555555555555L;
+    bits = (bits | bits >>> 1) & 0x3333333333333333L;
+    bits = (bits | bits >>> 2) & 0x0f0f0f0f0f0f0f0fL;
+    bits = (bits | bits >>> 4) & 0x00ff00ff00ff00ffL;
+    bits = (bits | bits >>> 8) & 0x0000ffff0000ffffL;
+    bits = (bits | bits >>> 16) & 0x00000000ffffffffL;
+    return (int) bits;
+  }
+
+  /**
+   * Returns the smallest Z-order code greater than code that lies in the box with corner codes
+   * first and last (BIGMIN in Tropf and Herzog's range search). code must lie between the corners
+   * but outside the box.
+   */
+  private static long nextInBox(long code, long first, long last) {
+    long next = last;
+    for (int bit = 63 - Long.numberOfLeadingZeros(last); bit >= 0; bit--) {
+      long mask = 1L << bit;
+      // The lower bits of the same axis as bit, x on even bits and y on odd ones
+      long lower = (0x5555555555555555L << (bit & 1)) & (mask - 1);
+      boolean codeBit = (code & mask) != 0;
+      boolean firstBit = (first & mask) != 0;
+      boolean lastBit = (last & mask) != 0;
+      if (!codeBit && !firstBit && lastBit) {
+        // The box splits here. Its upper half is all above code, so its first code is the best
+        // answer so far, and the search goes on in the lower half, where code is
+        next = (first | mask) & ~lower;
+        last = (last & ~mask) | lower;
+      } else if (!codeBit && firstBit) {
+        // The whole remaining box is above code
+        return first;
+      } else if (codeBit && !lastBit) {
+        // The whole remaining box is below code
+        return next;
+      } else if (codeBit && !firstBit) {
+        first = (first | mask) & ~lower;
+      }
+    }
+    return next;
+  }
+
+  /**
+   * The non-empty cells of one zoom level, sorted by Z-order code. Z-order keeps the four cells
+   * that merge into one next to each other, and every cell inside a box has a code between the
+   * codes of its corners.
+   */
+  private static final class Level {
+    private final long[] cells;
+    private final double[] latSums;
+    private final double[] lngSums;
+    private final int[] counts;
+    private int size;
+
+    private Level(int capacity) {
+      cells = new long[capacity];
+      latSums = new double[capacity];
+      lngSums = new double[capacity];
+      counts = new int[capacity];
+    }
+
+    /** Adds sightings to cell, which must not come before the last cell added. */
+    private void add(long cell, double latSum, double lngSum, int count) {
+      if (size == 0 || cells[size - 1] != cell) {
+        cells[size] = cell;
+        size++;
+      }
+      latSums[size - 1] += latSum;
+      lngSums[size - 1] += lngSum;
+      counts[size - 1] += count;
+    }
+
+    /** Returns the level above this one, where each cell covers 2 by 2 cells of this one. */
+    private Level merge() {
+      Level parent = new Level(size);
+      for (int i = 0; i < size; i++) {
+        // Dropping the lowest bit of x and y gives the code of the containing cell
+        parent.add(cells[i] >>> 2, latSums[i], lngSums[i], counts[i]);
+      }
+      return parent;
+    }
+
+    /**
+     * Adds the clusters in the cells from (minX, minY) to (maxX, maxY) to clusters. Codes between
+     * the corners that fall outside the box are skipped with a binary search to the next code
+     * inside it, so a small box that straddles a high Z-order boundary does not scan the level.
+     */
+    private void query(int minX, int minY, int maxX, int maxY, UfoClusters.Builder clusters) {
+      if (minX > maxX || minY > maxY) {
+        return;
+      }
+      long first = interleave(minX, minY);
+      long last = interleave(maxX, maxY);
+      int i = search(first, 0);
+      while (i < size && cells[i] <= last) {
+        int x = compact(cells[i]);
+        int y = compact(cells[i] >>> 1);
+        if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+          clusters.add(latSums[i] / counts[i], lngSums[i] / counts[i], counts[i]);
+          i++;
+        } else {
+          i = search(nextInBox(cells[i], first, last), i + 1);
+        }
+      }
+    }
+
+    /** Returns the index of the first cell from index from on whose code is at least code. */
+    private int search(long code, int from) {
+      int i = Arrays.binarySearch(cells, from, size, code);
+      return i < 0 ? -i - 1 : i;
+    }
+  }
+}
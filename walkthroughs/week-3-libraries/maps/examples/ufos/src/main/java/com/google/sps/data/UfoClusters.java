@@ -0,0 +1,79 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.Arrays;
+
+/**
+ * Groups of nearby UFO sightings, stored as parallel arrays. Cluster i holds getCount(i)
+ * sightings whose average position is (getLat(i), getLng(i)).
+ */
+public final class UfoClusters {
+  private final double[] lats;
+  private final double[] lngs;
+  private final int[] counts;
+
+  private UfoClusters(double[] lats, double[] lngs, int[] counts) {
+    this.lats = lats;
+    this.lngs = lngs;
+    this.counts = counts;
+  }
+
+  /** Returns the number of clusters. */
+  public int size() {
+    return counts.length;
+  }
+
+  /** Returns the average latitude of the sightings in cluster i. */
+  public double getLat(int i) {
+    return lats[i];
+  }
+
+  /** Returns the average longitude of the sightings in cluster i. */
+  public double getLng(int i) {
+    return lngs[i];
+  }
+
+  /** Returns the number of sightings in cluster i. */
+  public int getCount(int i) {
+    return counts[i];
+  }
+
+  /** Collects clusters one at a time, growing its arrays as needed. */
+  static final class Builder {
+    private double[] lats = new double[64];
+    private double[] lngs = new double[64];
+    private int[] counts = new int[64];
+    private int size;
+
+    Builder add(double lat, double lng, int count) {
+      if (size == counts.length) {
+        lats = Arrays.copyOf(lats, size * 2);
+        lngs = Arrays.copyOf(lngs, size * 2);
+        counts = Arrays.copyOf(counts, size * 2);
+      }
+      lats[size] = lat;
+      lngs[size] = lng;
+      counts[size] = count;
+      size++;
+      return this;
+    }
+
+    UfoClusters build() {
+      return new UfoClusters(
+          Arrays.copyOf(lats, size), Arrays.copyOf(lngs, size), Arrays.copyOf(counts, size));
+    }
+  }
+}
@@ -0,0 +1,63 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/** The UFO sightings together with the indexes built over them. */
+public final class UfoDataset {
+  private final UfoSightings sightings;
+  private final UfoSightingIndex sightingIndex;
+  private final UfoClusterIndex clusterIndex;
+
+  private UfoDataset(UfoSightings sightings) {
+    this.sightings = sightings;
+    sightingIndex = new UfoSightingIndex(sightings);
+    clusterIndex = new UfoClusterIndex(sightings);
+  }
+
+  /** Reads sightings from a CSV file with lines like "38.4404675,-122.7144313". */
+  public static UfoDataset load(Path csv) throws IOException {
+    return fromColumns(CsvLoader.load(csv, 2));
+  }
+
+  /** Reads sightings from a CSV stream with lines like "38.4404675,-122.7144313". */
+  public static UfoDataset load(InputStream csv) throws IOException {
+    return fromColumns(CsvLoader.load(csv, 2));
+  }
+
+  /** Returns the dataset of sightings that are already loaded. */
+  public static UfoDataset of(UfoSightings sightings) {
+    return new UfoDataset(sightings);
+  }
+
+  private static UfoDataset fromColumns(double[][] columns) {
+    return new UfoDataset(new UfoSightings(columns[0], columns[1]));
+  }
+
+  public UfoSightings getSightings() {
+    return sightings;
+  }
+
+  public UfoSightingIndex getSightingIndex() {
+    return sightingIndex;
+  }
+
+  public UfoClusterIndex getClusterIndex() {
+    return clusterIndex;
+  }
+}
@@ -0,0 +1,163 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+/**
+ * Finds the UFO sightings inside a lat/lng bounding box without looking at every sighting.
+ *
+ * <p>The index is a k-d tree over the columns of the sightings, which it shares rather than
+ * copies. Only the order of the tree is kept, as one int per sighting: the median of each range
+ * is stored in its middle, with smaller keys before it and larger keys after it. Levels alternate
+ * between splitting on latitude and on longitude. A query only walks down the halves of each range
+ * that can overlap the box.
+ */
+public final class UfoSightingIndex {
+  private final UfoSightings sightings;
+  // order[i] is the sighting at position i of the tree
+  private final int[] order;
+
+  public UfoSightingIndex(UfoSightings sightings) {
+    this.sightings = sightings;
+    int size = sightings.size();
+    order = new int[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    build(0, size, 0);
+  }
+
+  /** Returns the number of indexed sightings. */
+  public int size() {
+    return order.length;
+  }
+
+  /**
+   * Returns the sightings inside the box, edges included. If west is greater than east the box
+   * crosses the antimeridian and wraps around from west to east.
+   */
+  public UfoSightings query(double south, double west, double north, double east) {
+    UfoSightings.Builder matches = new UfoSightings.Builder();
+    if (west <= east) {
+      query(0, order.length, 0, south, west, north, east, matches);
+    } else {
+      query(0, order.length, 0, south, west, north, 180, matches);
+      query(0, order.length, 0, south, -180, north, east, matches);
+    }
+    return matches.build();
+  }
+
+  private void query(
+      int from,
+      int to,
+      int depth,
+      double south,
+      double west,
+      double north,
+      double east,
+      UfoSightings.Builder matches) {
+    while (from < to) {
+      int mid = (from + to) >>> 1;
+      int sighting = order[mid];
+      double lat = sightings.getLat(sighting);
+      double lng = sightings.getLng(sighting);
+      if (lat >= south && lat <= north && lng >= west && lng <= east) {
+        matches.add(lat, lng);
+      }
+
+      double key = depth % 2 == 0 ? lat : lng;
+      double min = depth % 2 == 0 ? south : west;
+      double max = depth % 2 == 0 ? north : east;
+      boolean searchLower = min <= key;
+      boolean searchUpper = key <= max;
+      depth++;
+      if (searchLower && searchUpper) {
+        query(from, mid, depth, south, west, north, east, matches);
+        from = mid + 1;
+      } else if (searchLower) {
+        to = mid;
+      } else if (searchUpper) {
+        from = mid + 1;
+      } else {
+        return;
+      }
+    }
+  }
+
+  /** Arranges [from, to) so its middle holds the median and each half is a subtree. */
+  private void build(int from, int to, int depth) {
+    if (to - from < 2) {
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    select(from, to - 1, mid, depth % 2 == 0);
+    build(from, mid, depth + 1);
+    build(mid + 1, to, depth + 1);
+  }
+
+  /**
+   * Moves the sighting with the k-th smallest key in [left, right] to position k, with smaller
+   * keys before it and larger keys after it. Keys are latitudes if byLat, longitudes otherwise.
+   */
+  private void select(int left, int right, int k, boolean byLat) {
+    while (left < right) {
+      // Median of three keeps already sorted data from taking quadratic time
+      int mid = (left + right) >>> 1;
+      if (key(mid, byLat) < key(left, byLat)) {
+        swap(left, mid);
+      }
+      if (key(right, byLat) < key(left, byLat)) {
+        swap(left, right);
+      }
+      if (key(right, byLat) < key(mid, byLat)) {
+        swap(mid, right);
+      }
+      double pivot = key(mid, byLat);
+
+      int i = left;
+      int j = right;
+      while (i <= j) {
+        while (key(i, byLat) < pivot) {
+          i++;
+        }
+        while (key(j, byLat) > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(i, j);
+          i++;
+          j--;
+        }
+      }
+      if (k <= j) {
+        right = j;
+      } else if (k >= i) {
+        left = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  /** Returns the key of the sighting at position i of the tree. */
+  private double key(int i, boolean byLat) {
+    return byLat ? sightings.getLat(order[i]) : sightings.getLng(order[i]);
+  }
+
+  private void swap(int i, int j) {
+    int sighting = order[i];
+    order[i] = order[j];
+    order[j] = sighting;
+  }
+}
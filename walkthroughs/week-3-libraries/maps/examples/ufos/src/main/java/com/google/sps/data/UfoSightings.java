@@ -0,0 +1,70 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.Arrays;
+
+/**
+ * UFO sightings stored as two parallel arrays of coordinates, so a sighting costs 16 bytes
+ * instead of a whole object. Sighting i is at (getLat(i), getLng(i)).
+ */
+public final class UfoSightings {
+  private final double[] lats;
+  private final double[] lngs;
+
+  UfoSightings(double[] lats, double[] lngs) {
+    this.lats = lats;
+    this.lngs = lngs;
+  }
+
+  /** Returns the number of sightings. */
+  public int size() {
+    return lats.length;
+  }
+
+  /** Returns the latitude of sighting i. */
+  public double getLat(int i) {
+    return lats[i];
+  }
+
+  /** Returns the longitude of sighting i. */
+  public double getLng(int i) {
+    return lngs[i];
+  }
+
+  /** Collects sightings one at a time, growing its arrays as needed. */
+  public static final class Builder {
+    private double[] lats = new double[1024];
+    private double[] lngs = new double[1024];
+    private int size;
+
+    /** Adds a sighting at lat, lng. */
+    public Builder add(double lat, double lng) {
+      if (size == lats.length) {
+        lats = Arrays.copyOf(lats, size * 2);
+        lngs = Arrays.copyOf(lngs, size * 2);
+      }
+      lats[size] = lat;
+      lngs[size] = lng;
+      size++;
+      return this;
+    }
+
+    /** Returns the sightings added so far, in the order they were added. */
+    public UfoSightings build() {
+      return new UfoSightings(Arrays.copyOf(lats, size), Arrays.copyOf(lngs, size));
+    }
+  }
+}
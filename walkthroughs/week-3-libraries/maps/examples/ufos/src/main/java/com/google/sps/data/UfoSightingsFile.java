@@ -0,0 +1,146 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Stores UFO sightings in a binary file that loads much faster than the CSV they come from.
+ *
+ * <p>The build converts ufo-data.csv to ufo-data.bin by running main(). The file holds, in order:
+ * the bytes "UFOS", the format version, the number of sightings, the size and CRC-32 of the CSV
+ * file it was made from, all latitudes, all longitudes, and a CRC-32 of everything before it.
+ * Numbers are big-endian ints, longs and doubles.
+ *
+ * <p>The CRC-32 of the CSV tells a copy made from an edited CSV apart even when the edit kept the
+ * size, like fixing one digit.
+ */
+public final class UfoSightingsFile {
+
+  private static final int MAGIC = 0x55464f53; // "UFOS"
+  private static final int VERSION = 2;
+  private static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 4;
+  private static final int CHECKSUM_BYTES = 4;
+
+  private UfoSightingsFile() {}
+
+  /** Converts the CSV file args[0] to the binary file args[1]. */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: UfoSightingsFile <csv file> <binary file>");
+      System.exit(1);
+    }
+    Path csv = Paths.get(args[0]);
+    Path binary = Paths.get(args[1]);
+    double[][] columns = CsvLoader.load(csv, 2);
+    if (binary.getParent() != null) {
+      Files.createDirectories(binary.getParent());
+    }
+    byte[] bytes =
+        toBytes(new UfoSightings(columns[0], columns[1]), Files.size(csv), checksum(csv));
+    Files.write(binary, bytes);
+  }
+
+  /** Returns the CRC-32 of the contents of file. */
+  public static int checksum(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      CRC32 crc = new CRC32();
+      crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+      return (int) crc.getValue();
+    }
+  }
+
+  /**
+   * Returns sightings in the binary format, noting that they came from a CSV of csvSize bytes
+   * whose CRC-32 is csvChecksum.
+   */
+  static byte[] toBytes(UfoSightings sightings, long csvSize, int csvChecksum) {
+    int size = sightings.size();
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + size * 16 + CHECKSUM_BYTES);
+    buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putLong(csvSize).putInt(csvChecksum);
+    for (int i = 0; i < size; i++) {
+      buffer.putDouble(sightings.getLat(i));
+    }
+    for (int i = 0; i < size; i++) {
+      buffer.putDouble(sightings.getLng(i));
+    }
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 0, buffer.position());
+    buffer.putInt((int) crc.getValue());
+    return buffer.array();
+  }
+
+  /**
+   * Reads the sightings of the binary file with a single memory-mapped read, checking that they
+   * were made from csv as it is now. Pass a null csv if it is not on disk to check.
+   */
+  public static UfoSightings read(Path file, Path csv) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (csv == null) {
+        return read(data, -1, 0);
+      }
+      return read(data, Files.size(csv), checksum(csv));
+    }
+  }
+
+  /**
+   * Reads the sightings in data.
+   *
+   * @param csvSize the size of the CSV file the sightings should come from, or -1 if unknown
+   * @param csvChecksum the CRC-32 of that CSV file, ignored if its size is unknown
+   * @throws IOException if data is not a complete, uncorrupted file of this format, or was made
+   *     from a different CSV file
+   */
+  public static UfoSightings read(ByteBuffer data, long csvSize, int csvChecksum)
+      throws IOException {
+    // Positions below count from where data starts
+    data = data.slice();
+    if (data.remaining() < HEADER_BYTES + CHECKSUM_BYTES
+        || data.getInt(0) != MAGIC
+        || data.getInt(4) != VERSION) {
+      throw new IOException("Not a UFO sightings file of version " + VERSION);
+    }
+    int size = data.getInt(8);
+    if (size < 0 || data.remaining() != HEADER_BYTES + (long) size * 16 + CHECKSUM_BYTES) {
+      throw new IOException("UFO sightings file has the wrong length");
+    }
+    if (csvSize >= 0 && (data.getLong(12) != csvSize || data.getInt(20) != csvChecksum)) {
+      throw new IOException("UFO sightings file was made from another version of the CSV");
+    }
+
+    ByteBuffer checked = data.duplicate();
+    checked.limit(checked.limit() - CHECKSUM_BYTES);
+    CRC32 crc = new CRC32();
+    crc.update(checked);
+    if ((int) crc.getValue() != data.getInt(data.limit() - CHECKSUM_BYTES)) {
+      throw new IOException("UFO sightings file is corrupted");
+    }
+
+    double[] lats = new double[size];
+    double[] lngs = new double[size];
+    ByteBuffer coordinates = data.duplicate();
+    coordinates.position(HEADER_BYTES);
+    coordinates.asDoubleBuffer().get(lats).get(lngs);
+    return new UfoSightings(lats, lngs);
+  }
+}
@@ -0,0 +1,85 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.data.DatasetManager;
+import com.google.sps.data.Tile;
+import com.google.sps.data.TileWriter;
+import com.google.sps.data.UfoDataset;
+import com.google.sps.data.UfoSightingIndex;
+import com.google.sps.data.UfoSightings;
+import java.io.IOException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Returns the UFO sightings in one map tile, e.g. /tiles/4/2/5, in the binary format of
+ * TileWriter.
+ */
+@WebServlet("/tiles/*")
+public class TileServlet extends HttpServlet {
+
+  // The data changes rarely, so clients can reuse it for a few minutes
+  private static final String CACHE_CONTROL = "public, max-age=300";
+  private static final long MAX_CACHE_BYTES = 16 * 1024 * 1024;
+
+  private volatile TileCache tiles;
+
+  @Override
+  public void init() {
+    DatasetManager<UfoSnapshot> snapshots = UfoDataListener.getSnapshots(getServletContext());
+    tiles = newCache(snapshots.get().getDataset());
+    // Each version of the data gets a cache of its own, so no tile of an old version is served
+    // once the new one is in
+    snapshots.addListener(snapshot -> tiles = newCache(snapshot.getDataset()));
+  }
+
+  private TileCache newCache(UfoDataset dataset) {
+    UfoSightingIndex index = dataset.getSightingIndex();
+    return new TileCache(tile -> writeTile(index, tile), MAX_CACHE_BYTES, Long.MAX_VALUE);
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Tile tile = Tile.parse(request.getPathInfo());
+    if (tile == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND, "Tiles are at /tiles/{z}/{x}/{y}.");
+      return;
+    }
+
+    TileCache.CachedTile cached = tiles.get(tile);
+    response.setContentType("application/octet-stream");
+    if (HttpCaching.notModified(request, response, cached.getEtag(), -1, CACHE_CONTROL)) {
+      return;
+    }
+    response.setContentLength(cached.getData().length);
+    response.getOutputStream().write(cached.getData());
+  }
+
+  private static byte[] writeTile(UfoSightingIndex index, Tile tile) {
+    UfoSightings sightings =
+        index.query(tile.getSouth(), tile.getWest(), tile.getNorth(), tile.getEast());
+    TileWriter writer = new TileWriter();
+    for (int i = 0; i < sightings.size(); i++) {
+      // The box includes its edges, but a sighting on an edge belongs to only one tile
+      if (tile.contains(sightings.getLat(i), sightings.getLng(i))) {
+        writer.addPoint(sightings.getLat(i), sightings.getLng(i));
+      }
+    }
+    return writer.toByteArray();
+  }
+}
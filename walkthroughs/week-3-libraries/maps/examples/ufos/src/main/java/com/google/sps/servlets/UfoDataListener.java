@@ -0,0 +1,100 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.data.DatasetManager;
+import com.google.sps.data.UfoDataset;
+import com.google.sps.data.UfoSightingsFile;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Loads the UFO sightings shared by every servlet when the app starts, and loads them again
+ * whenever ufo-data.csv changes on disk. The first load reads the binary copy made by the build
+ * when it can, which keeps the start of a new instance fast.
+ */
+@WebListener
+public class UfoDataListener implements ServletContextListener {
+
+  private static final String SNAPSHOTS_ATTRIBUTE = UfoSnapshot.class.getName();
+  private static final String CSV_PATH = "/WEB-INF/ufo-data.csv";
+  // Made from the CSV by the build, see UfoSightingsFile
+  private static final String BINARY_PATH = "/WEB-INF/ufo-data.bin";
+  private static final long POLL_MILLIS = 10 * 1000;
+
+  /** Returns the UFO sightings shared by every servlet in context. */
+  @SuppressWarnings("unchecked")
+  static DatasetManager<UfoSnapshot> getSnapshots(ServletContext context) {
+    return (DatasetManager<UfoSnapshot>) context.getAttribute(SNAPSHOTS_ATTRIBUTE);
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    ServletContext context = event.getServletContext();
+    // Only a file that is unpacked on disk can be memory-mapped and watched for changes
+    String realPath = context.getRealPath(CSV_PATH);
+    Path file =
+        realPath != null && Files.isRegularFile(Paths.get(realPath)) ? Paths.get(realPath) : null;
+
+    DatasetManager<UfoSnapshot> snapshots =
+        new DatasetManager<>(() -> new UfoSnapshot(load(context, file)), file, POLL_MILLIS);
+    try {
+      snapshots.start(() -> new UfoSnapshot(loadFirst(context, file)));
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not load UFO sightings", e);
+    }
+    context.setAttribute(SNAPSHOTS_ATTRIBUTE, snapshots);
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    DatasetManager<UfoSnapshot> snapshots = getSnapshots(event.getServletContext());
+    if (snapshots != null) {
+      snapshots.close();
+    }
+  }
+
+  /**
+   * Loads the binary copy of the CSV that the build made, which is much faster to read, and falls
+   * back to the CSV if there is no copy or it does not match the CSV.
+   */
+  private static UfoDataset loadFirst(ServletContext context, Path csvFile) throws IOException {
+    String realPath = context.getRealPath(BINARY_PATH);
+    if (realPath != null && Files.isRegularFile(Paths.get(realPath))) {
+      try {
+        return UfoDataset.of(UfoSightingsFile.read(Paths.get(realPath), csvFile));
+      } catch (IOException e) {
+        System.err.println("Could not read " + BINARY_PATH + ", reading the CSV instead: " + e);
+      }
+    }
+    return load(context, csvFile);
+  }
+
+  private static UfoDataset load(ServletContext context, Path file) throws IOException {
+    if (file != null) {
+      return UfoDataset.load(file);
+    }
+    try (InputStream csv = context.getResourceAsStream(CSV_PATH)) {
+      return UfoDataset.load(csv);
+    }
+  }
+}
@@ -14,45 +14,188 @@
 
 package com.google.sps.servlets;
 
-import com.google.sps.data.UfoSighting;
-import com.google.gson.Gson;
+import com.google.sps.data.DatasetManager;
+import com.google.sps.data.UfoClusters;
+import com.google.sps.data.UfoDataset;
+import com.google.sps.data.UfoSightings;
+import com.google.gson.stream.JsonWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Scanner;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Returns UFO data as a JSON array, e.g. [{"lat": 38.4404675, "lng": -122.7144313}] */
+/**
+ * Returns UFO data as a JSON array, e.g. [{"lat": 38.4404675, "lng": -122.7144313}]. With the
+ * south, west, north and east parameters only the sightings inside that box are returned. Adding
+ * a zoom parameter returns clusters of nearby sightings for that map zoom level instead, e.g.
+ * [{"lat": 38.4404675, "lng": -122.7144313, "count": 12}].
+ */
 @WebServlet("/ufo-data")
 public class UfoDataServlet extends HttpServlet {
 
-  private Collection<UfoSighting> ufoSightings;
+  // The data changes rarely, so clients can reuse it for a few minutes
+  private static final String CACHE_CONTROL = "public, max-age=300";
+  private static final String BOX_ERROR = "south, west, north and east must be numbers.";
+
+  private DatasetManager<UfoSnapshot> snapshots;
 
   @Override
   public void init() {
-    ufoSightings = new ArrayList<>();
+    snapshots = UfoDataListener.getSnapshots(getServletContext());
+  }
 
-    Scanner scanner = new Scanner(getServletContext().getResourceAsStream("/WEB-INF/ufo-data.csv"));
-    while (scanner.hasNextLine()) {
-      String line = scanner.nextLine();
-      String[] cells = line.split(",");
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // One snapshot serves the whole request, even if a new one is swapped in meanwhile
+    UfoSnapshot snapshot = snapshots.get();
+    response.setContentType("application/json");
+    if (request.getParameter("zoom") != null) {
+      serveClusters(snapshot.getDataset(), request, response);
+      return;
+    }
+    if (request.getParameter("south") != null) {
+      serveViewport(snapshot.getDataset(), request, response);
+      return;
+    }
 
-      double lat = Double.parseDouble(cells[0]);
-      double lng = Double.parseDouble(cells[1]);
+    boolean gzip = GzipFilter.acceptsGzip(request);
+    // Each encoding is a different representation, so it gets its own ETag
+    String responseEtag = gzip ? snapshot.getGzippedEtag() : snapshot.getEtag();
+    if (HttpCaching.notModified(
+        request, response, responseEtag, snapshot.getLoadedMillis(), CACHE_CONTROL)) {
+      return;
+    }
 
-      ufoSightings.add(new UfoSighting(lat, lng));
+    // Clients that accept gzip get the bytes compressed when the snapshot was built, which
+    // GzipFilter passes through
+    byte[] body = snapshot.getJson();
+    if (gzip) {
+      response.setHeader("Content-Encoding", "gzip");
+      body = snapshot.getGzippedJson();
     }
-    scanner.close();
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
   }
 
-  @Override
-  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    response.setContentType("application/json");
-    Gson gson = new Gson();
-    String json = gson.toJson(ufoSightings);
-    response.getWriter().println(json);
+  /** Writes the sightings inside the box given by the request parameters. */
+  private static void serveViewport(
+      UfoDataset dataset, HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    double[] box = getBox(request);
+    if (box == null) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, BOX_ERROR);
+      return;
+    }
+
+    writeBody(response, toJson(dataset.getSightingIndex().query(box[0], box[1], box[2], box[3])));
+  }
+
+  /** Writes the clusters for the zoom level and box given by the request parameters. */
+  private static void serveClusters(
+      UfoDataset dataset, HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    Integer zoom = getZoom(request);
+    double[] box = getBox(request);
+    if (zoom == null || box == null) {
+      response.sendError(
+          HttpServletResponse.SC_BAD_REQUEST, "zoom must be a whole number and " + BOX_ERROR);
+      return;
+    }
+
+    UfoClusters clusters = dataset.getClusterIndex().query(zoom, box[0], box[1], box[2], box[3]);
+    writeBody(response, toJson(clusters));
+  }
+
+  private static void writeBody(HttpServletResponse response, byte[] body) throws IOException {
+    response.setHeader("Cache-Control", CACHE_CONTROL);
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+
+  /**
+   * Returns the south, west, north and east request parameters, in that order, or null if any of
+   * them is missing or invalid.
+   */
+  private static double[] getBox(HttpServletRequest request) {
+    Double south = getCoordinate(request, "south");
+    Double west = getCoordinate(request, "west");
+    Double north = getCoordinate(request, "north");
+    Double east = getCoordinate(request, "east");
+    if (south == null || west == null || north == null || east == null) {
+      return null;
+    }
+    return new double[] {south, west, north, east};
+  }
+
+  /** Returns the named request parameter as a number, or null if it is missing or invalid. */
+  private static Double getCoordinate(HttpServletRequest request, String name) {
+    String value = request.getParameter(name);
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Double.valueOf(value);
+    } catch (NumberFormatException e) {
+      System.err.println("Could not convert to double: " + value);
+      return null;
+    }
+  }
+
+  /** Returns the zoom request parameter, or null if it is not a whole number. */
+  private static Integer getZoom(HttpServletRequest request) {
+    String value = request.getParameter("zoom");
+    try {
+      return Integer.valueOf(value);
+    } catch (NumberFormatException e) {
+      System.err.println("Could not convert to int: " + value);
+      return null;
+    }
+  }
+
+  /** Returns sightings as a UTF-8 JSON array, e.g. [{"lat": 38.4404675, "lng": -122.7144313}] */
+  static byte[] toJson(UfoSightings sightings) {
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+    try {
+      JsonWriter writer = new JsonWriter(new OutputStreamWriter(json, StandardCharsets.UTF_8));
+      writer.beginArray();
+      for (int i = 0; i < sightings.size(); i++) {
+        writer.beginObject();
+        writer.name("lat").value(sightings.getLat(i));
+        writer.name("lng").value(sightings.getLng(i));
+        writer.endObject();
+      }
+      writer.endArray();
+      writer.flush();
+    } catch (IOException e) {
+      // Only an in-memory stream is written to, so this cannot happen
+      throw new IllegalStateException(e);
+    }
+    return json.toByteArray();
+  }
+
+  /** Returns clusters as a UTF-8 JSON array, e.g. [{"lat": 38.4, "lng": -122.7, "count": 12}] */
+  private static byte[] toJson(UfoClusters clusters) {
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+    try {
+      JsonWriter writer = new JsonWriter(new OutputStreamWriter(json, StandardCharsets.UTF_8));
+      writer.beginArray();
+      for (int i = 0; i < clusters.size(); i++) {
+        writer.beginObject();
+        writer.name("lat").value(clusters.getLat(i));
+        writer.name("lng").value(clusters.getLng(i));
+        writer.name("count").value(clusters.getCount(i));
+        writer.endObject();
+      }
+      writer.endArray();
+      writer.flush();
+    } catch (IOException e) {
+      // Only an in-memory stream is written to, so this cannot happen
+      throw new IllegalStateException(e);
+    }
+    return json.toByteArray();
   }
 }
@@ -0,0 +1,63 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.data.UfoDataset;
+
+/**
+ * One version of the UFO sightings with everything needed to serve it: the indexes, and the full
+ * JSON array already encoded and compressed. A snapshot never changes once built.
+ */
+final class UfoSnapshot {
+  private final UfoDataset dataset;
+  private final byte[] json;
+  private final byte[] gzippedJson;
+  private final String etag;
+  private final String gzippedEtag;
+  private final long loadedMillis;
+
+  UfoSnapshot(UfoDataset dataset) {
+    this.dataset = dataset;
+    json = UfoDataServlet.toJson(dataset.getSightings());
+    gzippedJson = GzipFilter.gzip(json);
+    etag = HttpCaching.etag(json);
+    gzippedEtag = HttpCaching.etag(gzippedJson);
+    loadedMillis = System.currentTimeMillis();
+  }
+
+  UfoDataset getDataset() {
+    return dataset;
+  }
+
+  byte[] getJson() {
+    return json;
+  }
+
+  byte[] getGzippedJson() {
+    return gzippedJson;
+  }
+
+  String getEtag() {
+    return etag;
+  }
+
+  String getGzippedEtag() {
+    return gzippedEtag;
+  }
+
+  long getLoadedMillis() {
+    return loadedMillis;
+  }
+}
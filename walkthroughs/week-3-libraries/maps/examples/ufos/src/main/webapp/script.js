@@ -12,16 +12,131 @@
 // See the License for the specific language governing permissions and
 // limitations under the License.
 
-/** Fetches UFO sightings data from the server and displays it in a map. */
+/** Zoomed in at least this far, the map shows every sighting instead of clusters. */
+const TILE_ZOOM = 8;
+
+/** Creates a map that shows the UFO sightings inside the visible area. */
 function createUfoSightingsMap() {
-  fetch('/ufo-data').then(response => response.json()).then((ufoSightings) => {
-    const map = new google.maps.Map(
-        document.getElementById('map'),
-        {center: {lat: 35.78613674, lng: -119.4491591}, zoom: 7});
-
-    ufoSightings.forEach((ufoSighting) => {
-      new google.maps.Marker(
-          {position: {lat: ufoSighting.lat, lng: ufoSighting.lng}, map: map});
+  const map = new google.maps.Map(
+      document.getElementById('map'),
+      {center: {lat: 35.78613674, lng: -119.4491591}, zoom: 7});
+
+  let clusterMarkers = [];
+  // Markers of the tiles shown so far, by tile path
+  const tileMarkers = new Map();
+
+  // Only what is in view is fetched, again every time the map stops moving
+  map.addListener('idle', () => {
+    const zoom = map.getZoom();
+    const bounds = map.getBounds();
+    const south = bounds.getSouthWest().lat();
+    const west = bounds.getSouthWest().lng();
+    const north = bounds.getNorthEast().lat();
+    const east = bounds.getNorthEast().lng();
+
+    if (zoom < TILE_ZOOM) {
+      removeTileMarkers(tileMarkers, new Set());
+      const url = '/ufo-data?zoom=' + zoom + '&south=' + south +
+          '&west=' + west + '&north=' + north + '&east=' + east;
+      fetch(url).then(response => response.json()).then((clusters) => {
+        clusterMarkers.forEach((marker) => marker.setMap(null));
+        clusterMarkers = clusters.map((cluster) => new google.maps.Marker({
+          position: {lat: cluster.lat, lng: cluster.lng},
+          label: cluster.count > 1 ? String(cluster.count) : null,
+          map: map
+        }));
+      });
+      return;
+    }
+
+    clusterMarkers.forEach((marker) => marker.setMap(null));
+    clusterMarkers = [];
+    const paths = visibleTiles(zoom, south, west, north, east);
+    removeTileMarkers(tileMarkers, paths);
+    // Tiles already on the map are kept, so panning only loads the new ones
+    paths.forEach((path) => {
+      if (tileMarkers.has(path)) {
+        return;
+      }
+      tileMarkers.set(path, []);
+      fetch('/tiles/' + path)
+          .then(response => response.arrayBuffer())
+          .then((buffer) => {
+            if (!tileMarkers.has(path)) {
+              return;
+            }
+            tileMarkers.set(path, decodeTile(buffer).map(
+                (point) => new google.maps.Marker({position: point, map: map})));
+          });
     });
   });
 }
+
+/** Removes the markers of every tile that is not in paths. */
+function removeTileMarkers(tileMarkers, paths) {
+  Array.from(tileMarkers.keys()).forEach((path) => {
+    if (!paths.has(path)) {
+      tileMarkers.get(path).forEach((marker) => marker.setMap(null));
+      tileMarkers.delete(path);
+    }
+  });
+}
+
+/** Returns the paths, like "8/41/99", of the tiles that overlap the box. */
+function visibleTiles(zoom, south, west, north, east) {
+  const tilesPerSide = 1 << zoom;
+  const tileX = (lng) => clamp(Math.floor((lng + 180) / 360 * tilesPerSide), tilesPerSide);
+  const tileY = (lat) => {
+    const sin = Math.sin(lat * Math.PI / 180);
+    const y = 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    return clamp(Math.floor(y * tilesPerSide), tilesPerSide);
+  };
+
+  const paths = new Set();
+  const minX = tileX(west);
+  // A box that crosses the antimeridian wraps around to the first column
+  const columns = (tileX(east) - minX + tilesPerSide) % tilesPerSide + 1;
+  for (let i = 0; i < columns; i++) {
+    for (let y = tileY(north); y <= tileY(south); y++) {
+      paths.add(zoom + '/' + (minX + i) % tilesPerSide + '/' + y);
+    }
+  }
+  return paths;
+}
+
+function clamp(tile, tilesPerSide) {
+  return Math.max(0, Math.min(tilesPerSide - 1, tile));
+}
+
+/** Returns the {lat, lng} points of a tile in the binary format of TileWriter. */
+function decodeTile(buffer) {
+  const bytes = new Uint8Array(buffer);
+  let offset = 0;
+  const readVarint = () => {
+    // Plain arithmetic instead of bit operators, which would cut numbers to 32 bits
+    let value = 0;
+    let scale = 1;
+    let byte;
+    do {
+      byte = bytes[offset++];
+      value += (byte & 0x7f) * scale;
+      scale *= 128;
+    } while (byte & 0x80);
+    return value;
+  };
+  const readSigned = () => {
+    const zigzag = readVarint();
+    return zigzag % 2 === 0 ? zigzag / 2 : -(zigzag + 1) / 2;
+  };
+
+  const points = [];
+  const count = readVarint();
+  let lat = 0;
+  let lng = 0;
+  for (let i = 0; i < count; i++) {
+    lat += readSigned();
+    lng += readSigned();
+    points.push({lat: lat / 1e6, lng: lng / 1e6});
+  }
+  return points;
+}
@@ -0,0 +1,130 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests the byte-level CSV parser against Double.parseDouble. */
+@RunWith(JUnit4.class)
+public final class CsvLoaderTest {
+  private static final int ROW_COUNT = 10000;
+
+  @Test
+  public void numbersMatchDoubleParseDouble() {
+    Random random = new Random(3);
+    StringBuilder csv = new StringBuilder();
+    String[] cells = new String[ROW_COUNT * 2];
+    for (int i = 0; i < cells.length; i++) {
+      cells[i] = randomNumber(random);
+      csv.append(cells[i]).append(i % 2 == 0 ? "," : "\n");
+    }
+
+    double[][] columns = parse(csv.toString(), 1);
+
+    Assert.assertEquals(ROW_COUNT, columns[0].length);
+    for (int i = 0; i < cells.length; i++) {
+      Assert.assertEquals(
+          cells[i],
+          Double.doubleToLongBits(Double.parseDouble(cells[i])),
+          Double.doubleToLongBits(columns[i % 2][i / 2]));
+    }
+  }
+
+  @Test
+  public void chunksParseLikeOneChunk() {
+    Random random = new Random(5);
+    StringBuilder csv = new StringBuilder();
+    for (int i = 0; i < ROW_COUNT; i++) {
+      csv.append(randomNumber(random)).append(',').append(randomNumber(random)).append('\n');
+    }
+
+    double[][] expected = parse(csv.toString(), 1);
+    for (int chunkCount = 2; chunkCount <= 7; chunkCount++) {
+      double[][] actual = parse(csv.toString(), chunkCount);
+      Assert.assertArrayEquals(expected[0], actual[0], 0);
+      Assert.assertArrayEquals(expected[1], actual[1], 0);
+    }
+  }
+
+  @Test
+  public void lineEndingsBlankLinesAndExtraColumns() {
+    double[][] columns = parse("1,2,ignored\r\n\n 3 , 4\r\n\n5,6", 1);
+
+    Assert.assertArrayEquals(new double[] {1, 3, 5}, columns[0], 0);
+    Assert.assertArrayEquals(new double[] {2, 4, 6}, columns[1], 0);
+  }
+
+  @Test
+  public void unusualNumbers() {
+    double[][] columns = parse("-0,+1.5\n1e3,.25\n0.000001,12345678901234567890\n", 1);
+
+    Assert.assertArrayEquals(new double[] {-0.0, 1e3, 0.000001}, columns[0], 0);
+    Assert.assertArrayEquals(new double[] {1.5, 0.25, 12345678901234567890.0}, columns[1], 0);
+    Assert.assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(columns[0][0]));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void invalidCellThrows() {
+    parse("1,2\n3,four\n", 1);
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void missingColumnThrows() {
+    parse("1,2\n3\n", 1);
+  }
+
+  @Test
+  public void fileAndStreamLoadTheSameColumns() throws Exception {
+    byte[] csv =
+        "38.4404675,-122.7144313\n21.926485,-159.5297239\n".getBytes(StandardCharsets.UTF_8);
+    Path file = Files.createTempFile("ufo", ".csv");
+    try {
+      Files.write(file, csv);
+
+      double[][] fromFile = CsvLoader.load(file, 2);
+      double[][] fromStream = CsvLoader.load(new ByteArrayInputStream(csv), 2);
+
+      Assert.assertArrayEquals(new double[] {38.4404675, 21.926485}, fromFile[0], 0);
+      Assert.assertArrayEquals(fromFile[0], fromStream[0], 0);
+      Assert.assertArrayEquals(fromFile[1], fromStream[1], 0);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static double[][] parse(String csv, int chunkCount) {
+    ByteBuffer data = ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8));
+    return CsvLoader.parse(data, 2, chunkCount);
+  }
+
+  /** Returns a number formatted like the datasets, or in Java's own format. */
+  private static String randomNumber(Random random) {
+    double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(8));
+    if (random.nextBoolean()) {
+      return Double.toString(value);
+    }
+    return String.format(Locale.ROOT, "%." + random.nextInt(10) + "f", value);
+  }
+}
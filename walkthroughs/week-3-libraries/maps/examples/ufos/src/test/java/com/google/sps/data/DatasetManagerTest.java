@@ -0,0 +1,143 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests reloading a dataset when its file changes. */
+@RunWith(JUnit4.class)
+public final class DatasetManagerTest {
+  // Polling is left to the tests, which check for changes themselves
+  private static final long NEVER = Long.MAX_VALUE;
+
+  private Path file;
+  private DatasetManager<UfoDataset> manager;
+  private final List<UfoDataset> reloaded = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    file = Files.createTempFile("ufo", ".csv");
+    write("1,2\n", 1000);
+    manager = new DatasetManager<>(() -> UfoDataset.load(file), file, NEVER);
+    manager.addListener(reloaded::add);
+    manager.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    manager.close();
+    Files.delete(file);
+  }
+
+  @Test
+  public void startLoadsFirstSnapshot() {
+    Assert.assertEquals(1, manager.get().getSightings().size());
+  }
+
+  @Test
+  public void unchangedFileIsNotLoadedAgain() {
+    UfoDataset first = manager.get();
+
+    Assert.assertFalse(manager.reloadIfChanged());
+    Assert.assertFalse(manager.reloadIfChanged());
+    Assert.assertSame(first, manager.get());
+  }
+
+  @Test
+  public void changeIsLoadedOnceTheFileIsStable() throws Exception {
+    UfoDataset first = manager.get();
+    write("1,2\n3,4\n", 2000);
+
+    Assert.assertFalse(manager.reloadIfChanged());
+    Assert.assertSame(first, manager.get());
+    Assert.assertTrue(manager.reloadIfChanged());
+
+    Assert.assertEquals(2, manager.get().getSightings().size());
+    Assert.assertEquals(1, reloaded.size());
+    Assert.assertSame(manager.get(), reloaded.get(0));
+  }
+
+  @Test
+  public void fileStillBeingWrittenIsNotLoaded() throws Exception {
+    write("1,2\n3,", 2000);
+    manager.reloadIfChanged();
+    write("1,2\n3,4\n5,6\n", 3000);
+
+    Assert.assertFalse(manager.reloadIfChanged());
+    Assert.assertTrue(manager.reloadIfChanged());
+    Assert.assertEquals(3, manager.get().getSightings().size());
+  }
+
+  @Test
+  public void brokenFileKeepsTheOldSnapshot() throws Exception {
+    UfoDataset first = manager.get();
+    write("1,2\nnot a number\n", 2000);
+
+    manager.reloadIfChanged();
+    Assert.assertFalse(manager.reloadIfChanged());
+    Assert.assertSame(first, manager.get());
+    Assert.assertTrue(reloaded.isEmpty());
+
+    write("1,2\n3,4\n", 3000);
+    manager.reloadIfChanged();
+    Assert.assertTrue(manager.reloadIfChanged());
+  }
+
+  @Test
+  public void failingListenerDoesNotStopTheOthers() throws Exception {
+    List<UfoDataset> afterFailure = new ArrayList<>();
+    manager.addListener(
+        dataset -> {
+          throw new IllegalStateException("Listener failure");
+        });
+    manager.addListener(afterFailure::add);
+    write("1,2\n3,4\n", 2000);
+
+    manager.reloadIfChanged();
+    Assert.assertTrue(manager.reloadIfChanged());
+    Assert.assertEquals(1, afterFailure.size());
+
+    write("1,2\n3,4\n5,6\n", 3000);
+    manager.reloadIfChanged();
+    Assert.assertTrue(manager.reloadIfChanged());
+    Assert.assertEquals(2, afterFailure.size());
+  }
+
+  @Test
+  public void withoutFileTheSnapshotNeverChanges() throws Exception {
+    DatasetManager<String> fixed = new DatasetManager<>(() -> "only", null, NEVER);
+    fixed.start();
+
+    Assert.assertEquals("only", fixed.get());
+    fixed.close();
+  }
+
+  /** Replaces the file, with a modification time that tells the versions apart. */
+  private void write(String csv, long modifiedMillis) throws Exception {
+    Files.write(file, csv.getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+  }
+}
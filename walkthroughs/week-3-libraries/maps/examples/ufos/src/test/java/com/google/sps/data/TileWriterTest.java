@@ -0,0 +1,141 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests the binary tile format and the tile coordinates. */
+@RunWith(JUnit4.class)
+public final class TileWriterTest {
+
+  @Test
+  public void pointsRoundTrip() {
+    byte[] tile =
+        new TileWriter()
+            .addPoint(38.4404675, -122.7144313)
+            .addPoint(-33.865143, 151.2099)
+            .addPoint(0, 0)
+            .toByteArray();
+
+    Reader reader = new Reader(tile);
+    Assert.assertEquals(3, reader.readVarint());
+    assertPoint(38.440468, -122.714431, reader);
+    assertPoint(-33.865143, 151.2099, reader);
+    assertPoint(0, 0, reader);
+    Assert.assertEquals(tile.length, reader.offset);
+  }
+
+  @Test
+  public void textFollowsItsPoint() {
+    byte[] tile = new TileWriter().addPoint(1, 2, "h\u00e9llo").addPoint(1, 2, "").toByteArray();
+
+    Reader reader = new Reader(tile);
+    Assert.assertEquals(2, reader.readVarint());
+    assertPoint(1, 2, reader);
+    Assert.assertEquals("h\u00e9llo", reader.readText());
+    assertPoint(1, 2, reader);
+    Assert.assertEquals("", reader.readText());
+    Assert.assertEquals(tile.length, reader.offset);
+  }
+
+  @Test
+  public void nearbyPointsTakeFewBytes() {
+    TileWriter writer = new TileWriter().addPoint(37.7749, -122.4194);
+    for (int i = 0; i < 100; i++) {
+      writer.addPoint(37.7749 + i * 1e-4, -122.4194 + i * 1e-4);
+    }
+
+    // The first point takes 9 bytes, the rest 2 bytes per coordinate
+    Assert.assertTrue(writer.toByteArray().length <= 1 + 9 + 100 * 4);
+  }
+
+  @Test
+  public void emptyTileIsJustItsCount() {
+    Assert.assertArrayEquals(new byte[] {0}, new TileWriter().toByteArray());
+  }
+
+  @Test
+  public void tileParsesFromPath() {
+    Assert.assertEquals(new Tile(4, 2, 5), Tile.parse("/4/2/5"));
+    Assert.assertNull(Tile.parse("/4/2"));
+    Assert.assertNull(Tile.parse("/4/16/0"));
+    Assert.assertNull(Tile.parse("/a/b/c"));
+    Assert.assertNull(Tile.parse(null));
+  }
+
+  @Test
+  public void tileContainsPointsWithinItsEdges() {
+    Tile tile = Tile.containing(10, 37.7749, -122.4194);
+
+    Assert.assertTrue(tile.contains(37.7749, -122.4194));
+    Assert.assertTrue(tile.getSouth() <= 37.7749 && 37.7749 <= tile.getNorth());
+    Assert.assertTrue(tile.getWest() <= -122.4194 && -122.4194 <= tile.getEast());
+    Assert.assertFalse(tile.contains(37.7749, -122.0));
+  }
+
+  @Test
+  public void topAndBottomRowsReachThePoles() {
+    Assert.assertEquals(90, new Tile(2, 0, 0).getNorth(), 0);
+    Assert.assertEquals(-90, new Tile(2, 0, 3).getSouth(), 0);
+    Assert.assertTrue(new Tile(0, 0, 0).contains(89, 0));
+  }
+
+  private static void assertPoint(double lat, double lng, Reader reader) {
+    reader.lat += reader.readSigned();
+    reader.lng += reader.readSigned();
+    Assert.assertEquals(lat, reader.lat / 1e6, 1e-6);
+    Assert.assertEquals(lng, reader.lng / 1e6, 1e-6);
+  }
+
+  /** Reads a tile the way the map page does. */
+  private static final class Reader {
+    private final byte[] bytes;
+    private int offset;
+    private long lat;
+    private long lng;
+
+    private Reader(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    private long readVarint() {
+      long value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = bytes[offset++];
+        value |= (long) (b & 0x7f) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+    private long readSigned() {
+      long zigzag = readVarint();
+      return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private String readText() {
+      int length = (int) readVarint();
+      String text = new String(bytes, offset, length, StandardCharsets.UTF_8);
+      offset += length;
+      return text;
+    }
+  }
+}
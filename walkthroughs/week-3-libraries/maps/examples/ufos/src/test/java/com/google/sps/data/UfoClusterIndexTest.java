@@ -0,0 +1,150 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests the zoom level clusters of UFO sightings. */
+@RunWith(JUnit4.class)
+public final class UfoClusterIndexTest {
+  private static final int SIGHTING_COUNT = 20000;
+
+  @Test
+  public void wholeWorldCountsEverySightingAtEveryZoom() {
+    UfoSightings sightings = randomSightings(new Random(7));
+    UfoClusterIndex index = new UfoClusterIndex(sightings);
+
+    for (int zoom = 0; zoom <= UfoClusterIndex.MAX_ZOOM; zoom++) {
+      UfoClusters clusters = index.query(zoom, -90, -180, 90, 180);
+      Assert.assertEquals(SIGHTING_COUNT, totalCount(clusters));
+      Assert.assertTrue(clusters.size() <= UfoClusterIndex.MAX_CLUSTERS);
+    }
+  }
+
+  @Test
+  public void nearbySightingsMergeIntoTheirCentroid() {
+    UfoSightings sightings =
+        new UfoSightings.Builder().add(37.0, -122.0).add(37.2, -122.2).add(-33.9, 151.2).build();
+    UfoClusterIndex index = new UfoClusterIndex(sightings);
+
+    UfoClusters clusters = index.query(3, 30, -130, 45, -110);
+
+    Assert.assertEquals(1, clusters.size());
+    Assert.assertEquals(2, clusters.getCount(0));
+    Assert.assertEquals(37.1, clusters.getLat(0), 1e-9);
+    Assert.assertEquals(-122.1, clusters.getLng(0), 1e-9);
+  }
+
+  @Test
+  public void sightingsSplitApartWhenZoomedIn() {
+    UfoSightings sightings = new UfoSightings.Builder().add(37.0, -122.0).add(37.2, -122.2).build();
+    UfoClusterIndex index = new UfoClusterIndex(sightings);
+
+    Assert.assertEquals(1, index.query(3, 30, -130, 45, -110).size());
+    Assert.assertEquals(2, index.query(12, 36.9, -122.3, 37.3, -121.9).size());
+  }
+
+  @Test
+  public void boxOnlyReturnsClustersInView() {
+    UfoSightings sightings =
+        new UfoSightings.Builder().add(37.0, -122.0).add(-33.9, 151.2).add(51.5, -0.1).build();
+    UfoClusterIndex index = new UfoClusterIndex(sightings);
+
+    UfoClusters clusters = index.query(8, 35, -125, 40, -120);
+
+    Assert.assertEquals(1, clusters.size());
+    Assert.assertEquals(37.0, clusters.getLat(0), 1e-9);
+  }
+
+  @Test
+  public void boxAcrossAntimeridianWrapsAround() {
+    UfoSightings sightings =
+        new UfoSightings.Builder().add(-17.7, 178.0).add(-14.3, -170.7).add(37.0, -122.0).build();
+    UfoClusterIndex index = new UfoClusterIndex(sightings);
+
+    Assert.assertEquals(2, totalCount(index.query(5, -25, 170, -10, -165)));
+  }
+
+  @Test
+  public void largeBoxAtHighZoomStaysBounded() {
+    UfoSightings sightings = randomSightings(new Random(11));
+    UfoClusterIndex index = new UfoClusterIndex(sightings);
+
+    UfoClusters clusters = index.query(UfoClusterIndex.MAX_ZOOM, -60, -120, 60, 120);
+
+    Assert.assertTrue(clusters.size() <= UfoClusterIndex.MAX_CLUSTERS);
+  }
+
+  @Test
+  public void smallBoxesMatchCheckingEverySighting() {
+    // Boxes around the equator and the prime meridian straddle the highest Z-order boundaries
+    Random random = new Random(3);
+    UfoSightings sightings = randomSightings(random);
+    UfoClusterIndex index = new UfoClusterIndex(sightings);
+
+    for (int round = 0; round < 200; round++) {
+      int zoom = 2 + random.nextInt(6);
+      double size = 40.0 / (1 << zoom);
+      double south = random.nextBoolean() ? -size / 2 : random.nextDouble() * 160 - 80;
+      double west = random.nextBoolean() ? -size / 2 : random.nextDouble() * 340 - 170;
+      double north = south + size * random.nextDouble();
+      double east = west + size * random.nextDouble();
+
+      Assert.assertEquals(
+          countInCells(sightings, zoom, south, west, north, east),
+          totalCount(index.query(zoom, south, west, north, east)));
+    }
+  }
+
+  /** Counts the sightings in the grid cells that overlap the box, one sighting at a time. */
+  private static int countInCells(
+      UfoSightings sightings, int zoom, double south, double west, double north, double east) {
+    // Grids have 4 by 4 cells per tile
+    int cellsPerSide = 4 << zoom;
+    int minX = MapProjection.cell(MapProjection.x(west), cellsPerSide);
+    int maxX = MapProjection.cell(MapProjection.x(east), cellsPerSide);
+    int minY = MapProjection.cell(MapProjection.y(north), cellsPerSide);
+    int maxY = MapProjection.cell(MapProjection.y(south), cellsPerSide);
+    int count = 0;
+    for (int i = 0; i < sightings.size(); i++) {
+      int x = MapProjection.cell(MapProjection.x(sightings.getLng(i)), cellsPerSide);
+      int y = MapProjection.cell(MapProjection.y(sightings.getLat(i)), cellsPerSide);
+      if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static UfoSightings randomSightings(Random random) {
+    UfoSightings.Builder builder = new UfoSightings.Builder();
+    for (int i = 0; i < SIGHTING_COUNT; i++) {
+      builder.add(random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180);
+    }
+    return builder.build();
+  }
+
+  private static int totalCount(UfoClusters clusters) {
+    int total = 0;
+    for (int i = 0; i < clusters.size(); i++) {
+      total += clusters.getCount(i);
+    }
+    return total;
+  }
+}
@@ -0,0 +1,139 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Checks the bounding box queries of the sightings index against a scan of every sighting. */
+@RunWith(JUnit4.class)
+public final class UfoSightingIndexTest {
+  private static final int SIGHTING_COUNT = 5000;
+  private static final int QUERY_COUNT = 200;
+
+  @Test
+  public void randomBoxesMatchFullScan() {
+    Random random = new Random(42);
+    UfoSightings sightings = randomSightings(random);
+    UfoSightingIndex index = new UfoSightingIndex(sightings);
+
+    for (int i = 0; i < QUERY_COUNT; i++) {
+      double south = random.nextDouble() * 180 - 90;
+      double north = south + random.nextDouble() * (90 - south);
+      double west = random.nextDouble() * 360 - 180;
+      double east = west + random.nextDouble() * (180 - west);
+
+      Assert.assertEquals(
+          scan(sightings, south, west, north, east),
+          points(index.query(south, west, north, east)));
+    }
+  }
+
+  @Test
+  public void boxAcrossAntimeridianWrapsAround() {
+    UfoSightings sightings =
+        new UfoSightings.Builder().add(10, 179).add(10, -179).add(10, 0).add(50, 179).build();
+    UfoSightingIndex index = new UfoSightingIndex(sightings);
+
+    List<String> expected = new ArrayList<>();
+    expected.add(point(10, -179));
+    expected.add(point(10, 179));
+    Assert.assertEquals(expected, points(index.query(0, 170, 20, -170)));
+  }
+
+  @Test
+  public void edgesAreIncluded() {
+    UfoSightings sightings = new UfoSightings.Builder().add(1, 2).add(3, 4).build();
+    UfoSightingIndex index = new UfoSightingIndex(sightings);
+
+    Assert.assertEquals(2, index.query(1, 2, 3, 4).size());
+  }
+
+  @Test
+  public void sightingsKeepTheirOrder() {
+    UfoSightings sightings =
+        new UfoSightings.Builder().add(3, 3).add(1, 1).add(4, 4).add(2, 2).build();
+    new UfoSightingIndex(sightings);
+
+    // The index shares the columns, so building it must not move the sightings
+    Assert.assertEquals(3, sightings.getLat(0), 0);
+    Assert.assertEquals(1, sightings.getLat(1), 0);
+    Assert.assertEquals(4, sightings.getLat(2), 0);
+    Assert.assertEquals(2, sightings.getLat(3), 0);
+  }
+
+  @Test
+  public void duplicatePointsAreAllFound() {
+    UfoSightings.Builder builder = new UfoSightings.Builder();
+    for (int i = 0; i < 100; i++) {
+      builder.add(37.5, -122.5);
+    }
+    UfoSightingIndex index = new UfoSightingIndex(builder.build());
+
+    Assert.assertEquals(100, index.query(37.5, -122.5, 37.5, -122.5).size());
+  }
+
+  @Test
+  public void emptyIndexFindsNothing() {
+    UfoSightingIndex index = new UfoSightingIndex(new UfoSightings.Builder().build());
+
+    Assert.assertEquals(0, index.size());
+    Assert.assertEquals(0, index.query(-90, -180, 90, 180).size());
+  }
+
+  private static UfoSightings randomSightings(Random random) {
+    UfoSightings.Builder builder = new UfoSightings.Builder();
+    for (int i = 0; i < SIGHTING_COUNT; i++) {
+      // Rounded so that some sightings share a latitude or longitude
+      double lat = Math.round((random.nextDouble() * 180 - 90) * 10) / 10.0;
+      double lng = Math.round((random.nextDouble() * 360 - 180) * 10) / 10.0;
+      builder.add(lat, lng);
+    }
+    return builder.build();
+  }
+
+  private static List<String> scan(
+      UfoSightings sightings, double south, double west, double north, double east) {
+    List<String> matches = new ArrayList<>();
+    for (int i = 0; i < sightings.size(); i++) {
+      double lat = sightings.getLat(i);
+      double lng = sightings.getLng(i);
+      if (lat >= south && lat <= north && lng >= west && lng <= east) {
+        matches.add(point(lat, lng));
+      }
+    }
+    Collections.sort(matches);
+    return matches;
+  }
+
+  private static List<String> points(UfoSightings sightings) {
+    List<String> points = new ArrayList<>();
+    for (int i = 0; i < sightings.size(); i++) {
+      points.add(point(sightings.getLat(i), sightings.getLng(i)));
+    }
+    Collections.sort(points);
+    return points;
+  }
+
+  private static String point(double lat, double lng) {
+    return lat + "," + lng;
+  }
+}
@@ -0,0 +1,120 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests the binary file of UFO sightings. */
+@RunWith(JUnit4.class)
+public final class UfoSightingsFileTest {
+  private static final long CSV_SIZE = 123;
+  private static final int CSV_CHECKSUM = 0x12345678;
+
+  private final UfoSightings sightings =
+      new UfoSightings.Builder()
+          .add(38.4404675, -122.7144313)
+          .add(-33.865143, 151.2099)
+          .add(0, -0.0)
+          .build();
+
+  @Test
+  public void sightingsRoundTrip() throws IOException {
+    UfoSightings read =
+        UfoSightingsFile.read(
+            ByteBuffer.wrap(UfoSightingsFile.toBytes(sightings, CSV_SIZE, CSV_CHECKSUM)), -1, 0);
+
+    Assert.assertEquals(sightings.size(), read.size());
+    for (int i = 0; i < sightings.size(); i++) {
+      Assert.assertEquals(sightings.getLat(i), read.getLat(i), 0);
+      Assert.assertEquals(sightings.getLng(i), read.getLng(i), 0);
+    }
+  }
+
+  @Test
+  public void mainConvertsCsvFile() throws IOException {
+    Path csv = Files.createTempFile("ufo", ".csv");
+    Path binary = Files.createTempFile("ufo", ".bin");
+    try {
+      Files.write(csv, "1.5,2.5\n3.5,4.5\n".getBytes(StandardCharsets.UTF_8));
+
+      UfoSightingsFile.main(new String[] {csv.toString(), binary.toString()});
+      UfoSightings read = UfoSightingsFile.read(binary, csv);
+
+      Assert.assertEquals(2, read.size());
+      Assert.assertEquals(3.5, read.getLat(1), 0);
+      Assert.assertEquals(4.5, read.getLng(1), 0);
+    } finally {
+      Files.delete(csv);
+      Files.delete(binary);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void corruptedFileIsRejected() throws IOException {
+    byte[] bytes = UfoSightingsFile.toBytes(sightings, CSV_SIZE, CSV_CHECKSUM);
+    bytes[30] ^= 1;
+
+    UfoSightingsFile.read(ByteBuffer.wrap(bytes), CSV_SIZE, CSV_CHECKSUM);
+  }
+
+  @Test(expected = IOException.class)
+  public void truncatedFileIsRejected() throws IOException {
+    byte[] bytes = UfoSightingsFile.toBytes(sightings, CSV_SIZE, CSV_CHECKSUM);
+
+    UfoSightingsFile.read(
+        ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 8)), CSV_SIZE, CSV_CHECKSUM);
+  }
+
+  @Test(expected = IOException.class)
+  public void fileOfAnotherCsvIsRejected() throws IOException {
+    byte[] bytes = UfoSightingsFile.toBytes(sightings, CSV_SIZE, CSV_CHECKSUM);
+
+    UfoSightingsFile.read(ByteBuffer.wrap(bytes), CSV_SIZE + 1, CSV_CHECKSUM);
+  }
+
+  @Test
+  public void fileOfCsvEditedInPlaceIsRejected() throws IOException {
+    Path csv = Files.createTempFile("ufo", ".csv");
+    Path binary = Files.createTempFile("ufo", ".bin");
+    try {
+      Files.write(csv, "1.5,2.5\n3.5,4.5\n".getBytes(StandardCharsets.UTF_8));
+      UfoSightingsFile.main(new String[] {csv.toString(), binary.toString()});
+      // Same size, one digit fixed
+      Files.write(csv, "1.5,2.5\n3.5,4.6\n".getBytes(StandardCharsets.UTF_8));
+
+      UfoSightingsFile.read(binary, csv);
+      Assert.fail("The copy of the old CSV was read");
+    } catch (IOException e) {
+      // Expected
+    } finally {
+      Files.delete(csv);
+      Files.delete(binary);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void otherFileIsRejected() throws IOException {
+    UfoSightingsFile.read(ByteBuffer.wrap("38.4404675,-122.7144313\n".getBytes()), -1, 0);
+  }
+}
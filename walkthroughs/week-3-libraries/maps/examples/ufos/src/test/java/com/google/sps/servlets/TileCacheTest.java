@@ -0,0 +1,111 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.data.Tile;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests the size-bounded tile cache. */
+@RunWith(JUnit4.class)
+public final class TileCacheTest {
+  private static final int TILE_BYTES = 10;
+  private static final long MAX_AGE_MILLIS = 1000;
+
+  private final List<Tile> generated = new ArrayList<>();
+  private long now;
+  private TileCache cache;
+
+  @Before
+  public void setUp() {
+    now = 0;
+    // Room for three tiles
+    cache = new TileCache(this::generate, 3 * TILE_BYTES, MAX_AGE_MILLIS, () -> now);
+  }
+
+  @Test
+  public void tileIsGeneratedOnlyOnce() {
+    Tile tile = new Tile(1, 0, 1);
+
+    TileCache.CachedTile first = cache.get(tile);
+    TileCache.CachedTile second = cache.get(tile);
+
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1, generated.size());
+  }
+
+  @Test
+  public void leastRecentlyUsedTileIsEvicted() {
+    Tile a = new Tile(2, 0, 0);
+    Tile b = new Tile(2, 0, 1);
+    Tile c = new Tile(2, 0, 2);
+    Tile d = new Tile(2, 0, 3);
+    cache.get(a);
+    cache.get(b);
+    cache.get(c);
+    cache.get(a);
+
+    cache.get(d);
+    generated.clear();
+    cache.get(a);
+    cache.get(b);
+
+    Assert.assertEquals(3, cache.size());
+    Assert.assertEquals(1, generated.size());
+    Assert.assertEquals(b, generated.get(0));
+  }
+
+  @Test
+  public void oldTileIsGeneratedAgain() {
+    Tile tile = new Tile(0, 0, 0);
+    cache.get(tile);
+
+    now += MAX_AGE_MILLIS;
+    cache.get(tile);
+
+    Assert.assertEquals(2, generated.size());
+  }
+
+  @Test
+  public void invalidatedTileIsGeneratedAgain() {
+    Tile tile = new Tile(0, 0, 0);
+    cache.get(tile);
+
+    cache.invalidate(tile);
+    cache.get(tile);
+
+    Assert.assertEquals(2, generated.size());
+  }
+
+  @Test
+  public void tileBiggerThanCacheIsNotKept() {
+    TileCache small = new TileCache(this::generate, TILE_BYTES - 1, MAX_AGE_MILLIS, () -> now);
+
+    Assert.assertEquals(TILE_BYTES, small.get(new Tile(0, 0, 0)).getData().length);
+    Assert.assertEquals(0, small.size());
+  }
+
+  private byte[] generate(Tile tile) {
+    generated.add(tile);
+    byte[] data = new byte[TILE_BYTES];
+    data[0] = (byte) tile.hashCode();
+    return data;
+  }
+}
@@ -0,0 +1,72 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.sentiment;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Creates the sentiment analyzer shared by every servlet when the app starts and closes it when the
+ * app is undeployed.
+ */
+@WebListener
+public class SentimentAnalyzerListener implements ServletContextListener {
+
+  private static final String ANALYZER_ATTRIBUTE = SentimentAnalyzer.class.getName();
+
+  // Most scores cached at once, and how long a cached score is kept
+  private static final int CACHE_SIZE = 10000;
+  private static final long CACHE_TTL_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+  /** Returns the analyzer shared by every servlet in context. */
+  public static SentimentAnalyzer getAnalyzer(ServletContext context) {
+    return (SentimentAnalyzer) context.getAttribute(ANALYZER_ATTRIBUTE);
+  }
+
+  /** Shares analyzer with every servlet in context, for example to replace it with a stub. */
+  public static void setAnalyzer(ServletContext context, SentimentAnalyzer analyzer) {
+    context.setAttribute(ANALYZER_ATTRIBUTE, analyzer);
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    ServletContext context = event.getServletContext();
+    // Keep an analyzer that was registered before the app started, like a stub in tests
+    if (getAnalyzer(context) != null) {
+      return;
+    }
+
+    CloudSentimentAnalyzer analyzer = new CloudSentimentAnalyzer();
+    try {
+      analyzer.connect();
+    } catch (IOException e) {
+      // The analyzer tries again on its first call
+      System.err.println("Could not create the Natural Language client: " + e);
+    }
+    setAnalyzer(context, new CachingSentimentAnalyzer(analyzer, CACHE_SIZE, CACHE_TTL_MILLIS));
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    SentimentAnalyzer analyzer = getAnalyzer(event.getServletContext());
+    if (analyzer != null) {
+      analyzer.close();
+    }
+  }
+}
@@ -14,9 +14,8 @@
 
 package com.google.sps.servlets;
 
-import com.google.cloud.language.v1.Document;
-import com.google.cloud.language.v1.LanguageServiceClient;
-import com.google.cloud.language.v1.Sentiment;
+import com.google.sps.sentiment.SentimentAnalyzer;
+import com.google.sps.sentiment.SentimentAnalyzerListener;
 import java.io.IOException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -30,12 +29,9 @@ public class SentimentAnalysisServlet extends HttpServlet {
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
     String message = request.getParameter("message");
 
-    Document doc =
-        Document.newBuilder().setContent(message).setType(Document.Type.PLAIN_TEXT).build();
-    LanguageServiceClient languageService = LanguageServiceClient.create();
-    Sentiment sentiment = languageService.analyzeSentiment(doc).getDocumentSentiment();
-    float score = sentiment.getScore();
-    languageService.close();
+    // The analyzer is created once when the app starts and shared by every request.
+    SentimentAnalyzer analyzer = SentimentAnalyzerListener.getAnalyzer(getServletContext());
+    float score = analyzer.analyzeSentiment(message);
 
     // Output the sentiment score as HTML.
     // A real project would probably store the score alongside the content.
@@ -0,0 +1,79 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the two ways of answering a meeting request from a BusyIndex as the meeting grows:
+ * merging the attendees' sorted busy ranges and sweeping over them, and OR-ing their minute
+ * bitmaps.
+ *
+ * <p>The index holds 100,000 events of 10,000 people. Run from this directory with:
+ *
+ * <pre>mvn -P jmh test-compile exec:exec -Djmh.args="BusyIndexBenchmark"</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BusyIndexBenchmark {
+
+  private static final int EVENT_COUNT = 100000;
+  private static final int PEOPLE = 10000;
+
+  @Param({"1", "10", "100", "1000"})
+  public int attendeeCount;
+
+  private final FindMeetingQuery query = new FindMeetingQuery();
+  private BusyIndex index;
+  private MeetingRequest request;
+
+  @Setup
+  public void setUp() {
+    index = new BusyIndex(RandomEvents.of(EVENT_COUNT, PEOPLE));
+    List<String> attendees = new ArrayList<>();
+    for (int i = 0; i < attendeeCount; i++) {
+      attendees.add(RandomEvents.attendee(i));
+    }
+    request = new MeetingRequest(attendees, 30);
+  }
+
+  @Benchmark
+  public Collection<TimeRange> sweep() {
+    return query.query(index, request);
+  }
+
+  @Benchmark
+  public Collection<TimeRange> bitmap() {
+    return query.queryByMinute(index, request);
+  }
+}
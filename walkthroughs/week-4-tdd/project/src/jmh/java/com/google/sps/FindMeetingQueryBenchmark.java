@@ -0,0 +1,71 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures FindMeetingQuery.query on all the events of a day, which filters them, sorts the busy
+ * ranges and sweeps over them. Everyone has about ten events, so there are more people the more
+ * events there are.
+ *
+ * <p>Run from this directory with:
+ *
+ * <pre>mvn -P jmh test-compile exec:exec -Djmh.args="FindMeetingQueryBenchmark"</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FindMeetingQueryBenchmark {
+
+  @Param({"10000", "100000", "1000000"})
+  public int eventCount;
+
+  private final FindMeetingQuery query = new FindMeetingQuery();
+  private List<Event> events;
+  private MeetingRequest request;
+
+  @Setup
+  public void setUp() {
+    events = RandomEvents.of(eventCount, eventCount / 10);
+    request =
+        new MeetingRequest(
+            Arrays.asList(
+                RandomEvents.attendee(0), RandomEvents.attendee(1), RandomEvents.attendee(2)),
+            30);
+  }
+
+  @Benchmark
+  public Collection<TimeRange> query() {
+    return query.query(events, request);
+  }
+}
@@ -0,0 +1,52 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/** Makes the same made-up day of events for every run of a benchmark. */
+final class RandomEvents {
+
+  private RandomEvents() {}
+
+  /** Returns the name of attendee number i. */
+  static String attendee(int i) {
+    return "Person " + i;
+  }
+
+  /**
+   * Returns count events between 15 minutes and 2 hours long, each with one to three of
+   * attendeeCount attendees.
+   */
+  static List<Event> of(int count, int attendeeCount) {
+    Random random = new Random(42);
+    List<Event> events = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      int duration = 15 * (1 + random.nextInt(8));
+      int start = random.nextInt(TimeRange.WHOLE_DAY.end() - duration);
+      String[] attendees = new String[1 + random.nextInt(3)];
+      for (int a = 0; a < attendees.length; a++) {
+        attendees[a] = attendee(random.nextInt(attendeeCount));
+      }
+      events.add(
+          new Event(
+              "Event " + i, TimeRange.fromStartDuration(start, duration), Arrays.asList(attendees)));
+    }
+    return events;
+  }
+}
@@ -0,0 +1,265 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The busy times of every attendee, so that a meeting query only looks at the people it asks
+ * about instead of at every event.
+ *
+ * <p>For each attendee the index keeps the time ranges of their events sorted by start, and the
+ * same ranges merged into the times they are busy. Ranges are packed into longs as in
+ * {@code FindMeetingQuery}. Adding or removing an event only touches the arrays of its attendees,
+ * which are replaced rather than changed, so queries can run while events are added or removed.
+ *
+ * <p>Each attendee's busy times are also kept as a {@code MinuteBitmap}, for queries about many
+ * attendees at once.
+ */
+public final class BusyIndex {
+  private final Map<String, Calendar> calendars = new ConcurrentHashMap<>();
+
+  /**
+   * Creates an index of {@code events}.
+   */
+  public BusyIndex(Collection<Event> events) {
+    // Collects every attendee's ranges first, so each attendee is sorted once
+    Map<String, RangeList> ranges = new HashMap<>();
+    for (Event event : events) {
+      TimeRange when = event.getWhen();
+      if (when.duration() <= 0) {
+        continue;
+      }
+      long range = FindMeetingQuery.pack(when.start(), when.end());
+      for (String attendee : event.getAttendees()) {
+        ranges.computeIfAbsent(attendee, key -> new RangeList()).add(range);
+      }
+    }
+    for (Map.Entry<String, RangeList> entry : ranges.entrySet()) {
+      long[] attendeeRanges = entry.getValue().toArray();
+      Arrays.sort(attendeeRanges);
+      calendars.put(entry.getKey(), new Calendar(attendeeRanges));
+    }
+  }
+
+  /**
+   * Adds {@code event} to the busy times of its attendees.
+   */
+  public void add(Event event) {
+    TimeRange when = event.getWhen();
+    if (when.duration() <= 0) {
+      return;
+    }
+    long range = FindMeetingQuery.pack(when.start(), when.end());
+    for (String attendee : event.getAttendees()) {
+      calendars.compute(attendee, (key, calendar) ->
+          new Calendar(insert(calendar == null ? new long[0] : calendar.ranges, range)));
+    }
+  }
+
+  /**
+   * Removes {@code event}, which must have been added before, from the busy times of its
+   * attendees.
+   */
+  public void remove(Event event) {
+    TimeRange when = event.getWhen();
+    if (when.duration() <= 0) {
+      return;
+    }
+    long range = FindMeetingQuery.pack(when.start(), when.end());
+    for (String attendee : event.getAttendees()) {
+      calendars.computeIfPresent(attendee, (key, calendar) -> {
+        long[] ranges = delete(calendar.ranges, range);
+        return ranges.length == 0 ? null : new Calendar(ranges);
+      });
+    }
+  }
+
+  /**
+   * Returns the times {@code attendee} is busy, merged and sorted by start. The returned array must
+   * not be changed.
+   */
+  long[] getBusy(String attendee) {
+    Calendar calendar = calendars.get(attendee);
+    return calendar == null ? new long[0] : calendar.busy;
+  }
+
+  /**
+   * Returns the times any of {@code attendees} is busy, merged and sorted by start. The busy times
+   * of the attendees are merged k ways, so this takes O(m log k) for m busy ranges of k attendees.
+   * The returned array must not be changed.
+   */
+  long[] getBusy(Collection<String> attendees) {
+    long[][] lists = new long[attendees.size()][];
+    int listCount = 0;
+    int total = 0;
+    for (String attendee : attendees) {
+      Calendar calendar = calendars.get(attendee);
+      if (calendar != null) {
+        lists[listCount++] = calendar.busy;
+        total += calendar.busy.length;
+      }
+    }
+    if (listCount == 1) {
+      return lists[0];
+    }
+
+    // A heap of the lists, ordered by the start of their next range
+    int[] heap = new int[listCount];
+    int[] next = new int[listCount];
+    for (int i = 0; i < listCount; i++) {
+      heap[i] = i;
+    }
+    for (int i = listCount / 2 - 1; i >= 0; i--) {
+      siftDown(heap, listCount, i, lists, next);
+    }
+
+    long[] merged = new long[total];
+    int mergedCount = 0;
+    int heapSize = listCount;
+    while (heapSize > 0) {
+      int list = heap[0];
+      mergedCount = append(merged, mergedCount, lists[list][next[list]++]);
+      if (next[list] == lists[list].length) {
+        heap[0] = heap[--heapSize];
+      }
+      siftDown(heap, heapSize, 0, lists, next);
+    }
+    return Arrays.copyOf(merged, mergedCount);
+  }
+
+  /**
+   * Returns the minutes in which any of {@code attendees} is busy, as a {@code MinuteBitmap}. This
+   * takes a few word operations per attendee, however busy they are.
+   */
+  long[] getBusyMinutes(Collection<String> attendees) {
+    long[] bitmap = MinuteBitmap.empty();
+    for (String attendee : attendees) {
+      Calendar calendar = calendars.get(attendee);
+      if (calendar != null) {
+        MinuteBitmap.or(bitmap, calendar.busyMinutes);
+      }
+    }
+    return bitmap;
+  }
+
+  private static void siftDown(int[] heap, int size, int i, long[][] lists, int[] next) {
+    while (true) {
+      int smallest = i;
+      int left = 2 * i + 1;
+      int right = left + 1;
+      if (left < size && head(lists, next, heap[left]) < head(lists, next, heap[smallest])) {
+        smallest = left;
+      }
+      if (right < size && head(lists, next, heap[right]) < head(lists, next, heap[smallest])) {
+        smallest = right;
+      }
+      if (smallest == i) {
+        return;
+      }
+      int swap = heap[i];
+      heap[i] = heap[smallest];
+      heap[smallest] = swap;
+      i = smallest;
+    }
+  }
+
+  private static long head(long[][] lists, int[] next, int list) {
+    return lists[list][next[list]];
+  }
+
+  /**
+   * Adds {@code range} to the first {@code count} merged ranges, joining it with the last one if
+   * they overlap or touch. Ranges must be added in order of start. Returns the new count.
+   */
+  private static int append(long[] merged, int count, long range) {
+    int start = FindMeetingQuery.unpackStart(range);
+    int end = FindMeetingQuery.unpackEnd(range);
+    if (count > 0) {
+      int lastStart = FindMeetingQuery.unpackStart(merged[count - 1]);
+      int lastEnd = FindMeetingQuery.unpackEnd(merged[count - 1]);
+      if (start <= lastEnd) {
+        merged[count - 1] = FindMeetingQuery.pack(lastStart, Math.max(lastEnd, end));
+        return count;
+      }
+    }
+    merged[count] = range;
+    return count + 1;
+  }
+
+  /** Returns a copy of the sorted {@code ranges} with {@code range} added. */
+  private static long[] insert(long[] ranges, long range) {
+    int index = Arrays.binarySearch(ranges, range);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    long[] inserted = new long[ranges.length + 1];
+    System.arraycopy(ranges, 0, inserted, 0, index);
+    inserted[index] = range;
+    System.arraycopy(ranges, index, inserted, index + 1, ranges.length - index);
+    return inserted;
+  }
+
+  /** Returns a copy of the sorted {@code ranges} without one {@code range}, if it has any. */
+  private static long[] delete(long[] ranges, long range) {
+    int index = Arrays.binarySearch(ranges, range);
+    if (index < 0) {
+      return ranges;
+    }
+    long[] deleted = new long[ranges.length - 1];
+    System.arraycopy(ranges, 0, deleted, 0, index);
+    System.arraycopy(ranges, index + 1, deleted, index, ranges.length - index - 1);
+    return deleted;
+  }
+
+  /** The ranges of one attendee's events, and the times they make the attendee busy. */
+  private static final class Calendar {
+    private final long[] ranges;
+    private final long[] busy;
+    private final long[] busyMinutes;
+
+    private Calendar(long[] ranges) {
+      this.ranges = ranges;
+      long[] merged = new long[ranges.length];
+      int count = 0;
+      for (long range : ranges) {
+        count = append(merged, count, range);
+      }
+      this.busy = Arrays.copyOf(merged, count);
+      this.busyMinutes = MinuteBitmap.of(busy);
+    }
+  }
+
+  /** A growing list of packed ranges. */
+  private static final class RangeList {
+    private long[] ranges = new long[4];
+    private int count;
+
+    private void add(long range) {
+      if (count == ranges.length) {
+        ranges = Arrays.copyOf(ranges, count * 2);
+      }
+      ranges[count++] = range;
+    }
+
+    private long[] toArray() {
+      return Arrays.copyOf(ranges, count);
+    }
+  }
+}
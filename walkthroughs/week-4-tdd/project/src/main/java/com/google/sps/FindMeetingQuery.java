@@ -14,10 +14,235 @@
 
 package com.google.sps;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+/**
+ * Finds the times of day when everyone in a meeting request is free for the whole meeting.
+ *
+ * <p>If the request has optional attendees, the times found are those when every required
+ * attendee and as many optional attendees as possible are free. If there are only optional
+ * attendees, at least one of them has to be free.
+ */
 public final class FindMeetingQuery {
+  // Below this many requests, spreading them over threads costs more than it saves
+  private static final int PARALLEL_REQUESTS = 64;
+
+  /**
+   * Returns every range of the day, in order, in which none of the request's attendees has an
+   * event and that is at least as long as the meeting. Runs in O(n log n) for n events.
+   */
   public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
-    throw new UnsupportedOperationException("TODO: Implement this method.");
+    if (request.getDuration() > TimeRange.WHOLE_DAY.duration()) {
+      return Collections.emptyList();
+    }
+    if (!request.getOptionalAttendees().isEmpty()) {
+      List<Event> attended = new ArrayList<>();
+      for (Event event : events) {
+        if (!Collections.disjoint(event.getAttendees(), request.getAttendees())
+            || !Collections.disjoint(event.getAttendees(), request.getOptionalAttendees())) {
+          attended.add(event);
+        }
+      }
+      return queryByMinute(new BusyIndex(attended), request);
+    }
+
+    // Each busy range is packed into a long, start in the high half and end in the low half, so
+    // sorting the longs sorts the ranges by start without a comparator or an object per range.
+    long[] busy = new long[events.size()];
+    int count = 0;
+    for (Event event : events) {
+      TimeRange when = event.getWhen();
+      // An event without duration takes up no time
+      if (when.duration() > 0
+          && !Collections.disjoint(event.getAttendees(), request.getAttendees())) {
+        busy[count++] = pack(when.start(), when.end());
+      }
+    }
+    Arrays.sort(busy, 0, count);
+    return freeRanges(busy, count, request.getDuration());
+  }
+
+  /**
+   * Like {@code query(events, request)}, but only looks at the busy times of the request's
+   * attendees in {@code index}, so the time taken does not grow with the events of other people.
+   */
+  public Collection<TimeRange> query(BusyIndex index, MeetingRequest request) {
+    if (request.getDuration() > TimeRange.WHOLE_DAY.duration()) {
+      return Collections.emptyList();
+    }
+    if (!request.getOptionalAttendees().isEmpty()) {
+      return queryByMinute(index, request);
+    }
+    long[] busy = index.getBusy(request.getAttendees());
+    return freeRanges(busy, busy.length, request.getDuration());
+  }
+
+  /**
+   * Like {@code query(index, request)}, but combines the attendees' busy times minute by minute.
+   * This takes the same few word operations per attendee however many events they have, and is
+   * usually the faster of the two. Parts of events outside of the day are ignored.
+   */
+  public Collection<TimeRange> queryByMinute(BusyIndex index, MeetingRequest request) {
+    if (request.getDuration() > TimeRange.WHOLE_DAY.duration()) {
+      return Collections.emptyList();
+    }
+    long[] busyMinutes = index.getBusyMinutes(request.getAttendees());
+    if (request.getOptionalAttendees().isEmpty()) {
+      return MinuteBitmap.freeRanges(busyMinutes, request.getDuration());
+    }
+    return withMostOptionalAttendees(index, request, busyMinutes);
+  }
+
+  /**
+   * Answers every request in {@code requests} against the same events, in the same order. The
+   * events of the requested attendees are indexed once for the whole batch, so this is much faster
+   * than calling {@code query} for each request. Parts of events outside of the day are ignored.
+   */
+  public List<Collection<TimeRange>> queryAll(
+      Collection<Event> events, List<MeetingRequest> requests) {
+    Set<String> attendees = new HashSet<>();
+    for (MeetingRequest request : requests) {
+      attendees.addAll(request.getAttendees());
+      attendees.addAll(request.getOptionalAttendees());
+    }
+    List<Event> attended = new ArrayList<>();
+    for (Event event : events) {
+      if (!Collections.disjoint(event.getAttendees(), attendees)) {
+        attended.add(event);
+      }
+    }
+    return queryAll(new BusyIndex(attended), requests);
+  }
+
+  /**
+   * Answers every request in {@code requests} with {@code queryByMinute}, in the same order. Large
+   * batches are answered in parallel on the common {@code ForkJoinPool}.
+   */
+  public List<Collection<TimeRange>> queryAll(BusyIndex index, List<MeetingRequest> requests) {
+    if (requests.size() < PARALLEL_REQUESTS) {
+      List<Collection<TimeRange>> answers = new ArrayList<>();
+      for (MeetingRequest request : requests) {
+        answers.add(queryByMinute(index, request));
+      }
+      return answers;
+    }
+    return requests.parallelStream()
+        .map(request -> queryByMinute(index, request))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the ranges in which the meeting fits while every required attendee and as many optional
+   * attendees as possible are free. The meeting can start anywhere in a range as long as it ends
+   * within it.
+   *
+   * <p>Rather than trying sets of optional attendees, this counts for every minute how many
+   * optional attendees are busy at some point during a meeting starting then. Each busy range of an
+   * attendee keeps them from the meetings that start up to the meeting's duration before it, so the
+   * counts are built with a difference array in time linear in the busy ranges of the optional
+   * attendees.
+   */
+  private static List<TimeRange> withMostOptionalAttendees(
+      BusyIndex index, MeetingRequest request, long[] requiredBusyMinutes) {
+    int minutes = MinuteBitmap.MINUTES;
+    // A meeting without duration still takes the minute it starts in
+    int length = (int) Math.max(request.getDuration(), 1);
+
+    // busyCounts[start] ends up as the number of optional attendees who cannot come to a meeting
+    // that starts then. Until it is summed up, it holds how much the count changes at each minute.
+    int[] busyCounts = new int[minutes + 1];
+    int optionalCount = 0;
+    for (String attendee : request.getOptionalAttendees()) {
+      if (request.getAttendees().contains(attendee)) {
+        continue;
+      }
+      optionalCount++;
+      // The end of the starts this attendee already keeps out, so no start is counted twice
+      int blockedEnd = 0;
+      for (long range : index.getBusy(attendee)) {
+        int from = Math.max(unpackStart(range) - length + 1, blockedEnd);
+        int to = Math.min(unpackEnd(range), minutes);
+        if (from < to) {
+          busyCounts[from]++;
+          busyCounts[to]--;
+          blockedEnd = to;
+        }
+      }
+    }
+    for (int start = 1; start < minutes; start++) {
+      busyCounts[start] += busyCounts[start - 1];
+    }
+
+    // Only starts where every required attendee is free for the whole meeting are possible
+    boolean[] possible = new boolean[minutes];
+    int fewestBusy = Integer.MAX_VALUE;
+    int freeMinutes = 0;
+    for (int start = minutes - 1; start >= 0; start--) {
+      freeMinutes = MinuteBitmap.isBusy(requiredBusyMinutes, start) ? 0 : freeMinutes + 1;
+      if (freeMinutes >= length) {
+        possible[start] = true;
+        fewestBusy = Math.min(fewestBusy, busyCounts[start]);
+      }
+    }
+    if (fewestBusy == Integer.MAX_VALUE
+        || (request.getAttendees().isEmpty() && fewestBusy == optionalCount)) {
+      return Collections.emptyList();
+    }
+
+    // Each run of best starts becomes one range, which ends where the last of them would end
+    List<TimeRange> ranges = new ArrayList<>();
+    int runStart = -1;
+    for (int start = 0; start <= minutes; start++) {
+      boolean best = start < minutes && possible[start] && busyCounts[start] == fewestBusy;
+      if (best && runStart < 0) {
+        runStart = start;
+      } else if (!best && runStart >= 0) {
+        ranges.add(TimeRange.fromStartEnd(runStart, start - 1 + length, false));
+        runStart = -1;
+      }
+    }
+    return ranges;
+  }
+
+  /**
+   * Returns the ranges of the day that are at least duration long and not covered by any of the
+   * first count busy ranges, which must be packed and sorted.
+   */
+  static List<TimeRange> freeRanges(long[] busy, int count, long duration) {
+    List<TimeRange> free = new ArrayList<>();
+    // The start of the time not yet known to be busy
+    int freeStart = TimeRange.START_OF_DAY;
+    for (int i = 0; i < count; i++) {
+      int start = unpackStart(busy[i]);
+      addIfLongEnough(free, freeStart, start, duration);
+      freeStart = Math.max(freeStart, unpackEnd(busy[i]));
+    }
+    addIfLongEnough(free, freeStart, TimeRange.WHOLE_DAY.end(), duration);
+    return free;
+  }
+
+  private static void addIfLongEnough(List<TimeRange> free, int start, int end, long duration) {
+    if (end > start && end - start >= duration) {
+      free.add(TimeRange.fromStartEnd(start, end, false));
+    }
+  }
+
+  static long pack(int start, int end) {
+    return ((long) start << 32) | (end & 0xffffffffL);
+  }
+
+  static int unpackStart(long range) {
+    return (int) (range >> 32);
+  }
+
+  static int unpackEnd(long range) {
+    return (int) range;
   }
 }
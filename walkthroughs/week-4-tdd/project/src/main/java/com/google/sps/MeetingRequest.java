@@ -24,6 +24,9 @@ public final class MeetingRequest {
   // All the people that should be attending this new meeting. Use a set to avoid duplicates.
   private final Collection<String> attendees = new HashSet<>();
 
+  // The people that would like to attend, but are not required to. Use a set to avoid duplicates.
+  private final Collection<String> optionalAttendees = new HashSet<>();
+
   // The duration of the meeting in minutes.
   private final long duration;
 
@@ -32,13 +35,36 @@ public final class MeetingRequest {
     this.attendees.addAll(attendees);
   }
 
+  public MeetingRequest(
+      Collection<String> attendees, Collection<String> optionalAttendees, long duration) {
+    this(attendees, duration);
+    this.optionalAttendees.addAll(optionalAttendees);
+  }
+
   /**
    * Returns a read-only copy of the people who are required to attend this meeting.
    */
   public Collection<String> getAttendees() {
+    // Gson does not run the field initializers either, see getOptionalAttendees()
+    if (attendees == null) {
+      return Collections.emptySet();
+    }
     return Collections.unmodifiableCollection(attendees);
   }
 
+  /**
+   * Returns a read-only copy of the people who would like to attend this meeting, but are not
+   * required to.
+   */
+  public Collection<String> getOptionalAttendees() {
+    // Gson does not run the field initializers, so requests from JSON without optional attendees
+    // have none at all
+    if (optionalAttendees == null) {
+      return Collections.emptySet();
+    }
+    return Collections.unmodifiableCollection(optionalAttendees);
+  }
+
   /**
    * Returns the duration of the meeting in minutes.
    */
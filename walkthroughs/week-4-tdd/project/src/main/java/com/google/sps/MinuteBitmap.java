@@ -0,0 +1,128 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Busy minutes of the day as a bitmap, one bit per minute, so that the busy times of many people
+ * are combined by OR-ing a few words.
+ *
+ * <p>A day of 1,440 minutes fits in 23 longs. The bits after the end of the day are always set, so
+ * scans stop there without checking.
+ */
+final class MinuteBitmap {
+  static final int MINUTES = TimeRange.WHOLE_DAY.end();
+  static final int WORDS = (MINUTES + 63) / 64;
+
+  private MinuteBitmap() {}
+
+  /** Returns a bitmap with no busy minutes. */
+  static long[] empty() {
+    long[] bitmap = new long[WORDS];
+    if (MINUTES % 64 != 0) {
+      bitmap[WORDS - 1] = -1L << (MINUTES % 64);
+    }
+    return bitmap;
+  }
+
+  /** Returns the bitmap of {@code busy}, packed ranges as in {@code FindMeetingQuery}. */
+  static long[] of(long[] busy) {
+    long[] bitmap = empty();
+    for (long range : busy) {
+      set(bitmap, FindMeetingQuery.unpackStart(range), FindMeetingQuery.unpackEnd(range));
+    }
+    return bitmap;
+  }
+
+  /** Marks the minutes from {@code start} to {@code end}, exclusive, as busy. */
+  static void set(long[] bitmap, int start, int end) {
+    start = Math.max(start, 0);
+    end = Math.min(end, MINUTES);
+    if (start >= end) {
+      return;
+    }
+    int first = start >>> 6;
+    int last = (end - 1) >>> 6;
+    // Shifts only use the low 6 bits, so these are the bits from start and up to end - 1
+    long firstMask = -1L << start;
+    long lastMask = -1L >>> (63 - ((end - 1) & 63));
+    if (first == last) {
+      bitmap[first] |= firstMask & lastMask;
+      return;
+    }
+    bitmap[first] |= firstMask;
+    for (int word = first + 1; word < last; word++) {
+      bitmap[word] = -1L;
+    }
+    bitmap[last] |= lastMask;
+  }
+
+  /** Returns whether {@code minute} is busy. */
+  static boolean isBusy(long[] bitmap, int minute) {
+    return (bitmap[minute >>> 6] & (1L << minute)) != 0;
+  }
+
+  /** Marks every minute that is busy in {@code other} as busy in {@code bitmap}. */
+  static void or(long[] bitmap, long[] other) {
+    for (int word = 0; word < WORDS; word++) {
+      bitmap[word] |= other[word];
+    }
+  }
+
+  /**
+   * Returns the runs of free minutes in {@code bitmap} that are at least {@code duration} long, in
+   * order.
+   */
+  static List<TimeRange> freeRanges(long[] bitmap, long duration) {
+    List<TimeRange> free = new ArrayList<>();
+    int start = nextFree(bitmap, 0);
+    while (start < MINUTES) {
+      int end = nextBusy(bitmap, start);
+      if (end - start >= duration) {
+        free.add(TimeRange.fromStartEnd(start, end, false));
+      }
+      start = nextFree(bitmap, end);
+    }
+    return free;
+  }
+
+  /** Returns the first busy minute from {@code minute} on. There always is one by the day's end. */
+  private static int nextBusy(long[] bitmap, int minute) {
+    int word = minute >>> 6;
+    long bits = bitmap[word] & (-1L << minute);
+    while (bits == 0) {
+      bits = bitmap[++word];
+    }
+    return (word << 6) + Long.numberOfTrailingZeros(bits);
+  }
+
+  /** Returns the first free minute from {@code minute} on, or the end of the day if none is. */
+  private static int nextFree(long[] bitmap, int minute) {
+    int word = minute >>> 6;
+    if (word >= WORDS) {
+      return MINUTES;
+    }
+    long bits = ~bitmap[word] & (-1L << minute);
+    while (bits == 0) {
+      if (++word == WORDS) {
+        return MINUTES;
+      }
+      bits = ~bitmap[word];
+    }
+    return Math.min((word << 6) + Long.numberOfTrailingZeros(bits), MINUTES);
+  }
+}
@@ -0,0 +1,94 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.BusyIndex;
+import com.google.sps.Events;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Answers a JSON array of meeting requests with a JSON array of the possible times for each, in
+ * the same order, e.g. [[{"start": 0, "duration": 480}], []].
+ */
+@WebServlet("/query/batch")
+public class BatchQueryServlet extends HttpServlet {
+
+  // Answers are sent in chunks of this many, so the first ones go out while the rest are found
+  private static final int CHUNK_SIZE = 256;
+
+  private BusyIndex busyIndex;
+
+  @Override
+  public void init() {
+    // The events never change, so their busy times are indexed once for every query
+    busyIndex = new BusyIndex(Arrays.asList(Events.events));
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Gson gson = new Gson();
+
+    // Convert the JSON to meeting requests.
+    MeetingRequest[] meetingRequests;
+    try {
+      meetingRequests = gson.fromJson(request.getReader(), MeetingRequest[].class);
+    } catch (JsonParseException e) {
+      System.err.println("Could not convert to meeting requests: " + e.getMessage());
+      meetingRequests = null;
+    }
+    if (meetingRequests == null || !Arrays.stream(meetingRequests).allMatch(this::isValid)) {
+      response.sendError(
+          HttpServletResponse.SC_BAD_REQUEST, "Send a JSON array of meeting requests.");
+      return;
+    }
+
+    // Find the possible meeting times and write them out a chunk at a time
+    FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+    List<MeetingRequest> requests = Arrays.asList(meetingRequests);
+    response.setContentType("application/json");
+    JsonWriter writer = new JsonWriter(response.getWriter());
+    writer.beginArray();
+    for (int from = 0; from < requests.size(); from += CHUNK_SIZE) {
+      List<MeetingRequest> chunk =
+          requests.subList(from, Math.min(from + CHUNK_SIZE, requests.size()));
+      for (Collection<TimeRange> answer : findMeetingQuery.queryAll(busyIndex, chunk)) {
+        gson.toJson(answer, answer.getClass(), writer);
+      }
+      writer.flush();
+    }
+    writer.endArray();
+    writer.flush();
+  }
+
+  /** Returns true if request is a meeting request that names every attendee. */
+  private boolean isValid(MeetingRequest request) {
+    return request != null
+        && !request.getAttendees().contains(null)
+        && !request.getOptionalAttendees().contains(null);
+  }
+}
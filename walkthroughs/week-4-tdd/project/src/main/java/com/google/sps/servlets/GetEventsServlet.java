@@ -24,13 +24,31 @@ import javax.servlet.http.HttpServletResponse;
 
 @WebServlet("/get-events")
 public class GetEventsServlet extends HttpServlet {
+
+  // The events only change on redeploy, so clients can reuse them for a few minutes
+  private static final String CACHE_CONTROL = "public, max-age=300";
+
+  private String jsonResponse;
+  private String etag;
+  private long lastModifiedMillis;
+
   @Override
-  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+  public void init() {
+    // The events never change, so they are converted to JSON once
     Gson gson = new Gson();
-    String jsonResponse = gson.toJson(Events.events);
+    jsonResponse = gson.toJson(Events.events);
+    etag = HttpCaching.etag(jsonResponse);
+    lastModifiedMillis = System.currentTimeMillis();
+  }
 
-    // Send the JSON back as the response
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
     response.setContentType("application/json");
+    if (HttpCaching.notModified(request, response, etag, lastModifiedMillis, CACHE_CONTROL)) {
+      return;
+    }
+
+    // Send the JSON back as the response
     response.getWriter().println(jsonResponse);
   }
 }
@@ -14,6 +14,7 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.BusyIndex;
 import com.google.sps.Events;
 import com.google.sps.FindMeetingQuery;
 import com.google.sps.MeetingRequest;
@@ -29,6 +30,15 @@ import javax.servlet.http.HttpServletResponse;
 
 @WebServlet("/query")
 public class QueryServlet extends HttpServlet {
+
+  private BusyIndex busyIndex;
+
+  @Override
+  public void init() {
+    // The events never change, so their busy times are indexed once for every query
+    busyIndex = new BusyIndex(Arrays.asList(Events.events));
+  }
+
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
     Gson gson = new Gson();
@@ -38,8 +48,7 @@ public class QueryServlet extends HttpServlet {
 
     // Find the possible meeting times.
     FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
-    Collection<TimeRange> answer =
-        findMeetingQuery.query(Arrays.asList(Events.events), meetingRequest);
+    Collection<TimeRange> answer = findMeetingQuery.queryByMinute(busyIndex, meetingRequest);
 
     // Convert the times to JSON
     String jsonResponse = gson.toJson(answer);
@@ -23,10 +23,14 @@ function sendMeetingRequest() {
   const attendeesNamesString = document.getElementById('attendees').value;
   // split it into an array of names
   const attendees = attendeesNamesString.split(/\s*,\s*/);
+  // Optional names work the same way, but may be left empty
+  const optionalAttendees = document.getElementById('optional-attendees').value
+      .split(/\s*,\s*/).filter((name) => name !== '');
 
   // Create the request to send to the server using the data we collected from
   // the web form.
-  const meetingRequest = new MeetingRequest(duration, attendees);
+  const meetingRequest =
+      new MeetingRequest(duration, attendees, optionalAttendees);
 
   queryServer(meetingRequest).then((timeRanges) => {
     updateResultsOnPage(timeRanges);
@@ -87,9 +91,10 @@ function timeToString(totalMinutes) {
  * Request for possible meeting times.
  */
 class MeetingRequest {
-  constructor(duration, attendees) {
+  constructor(duration, attendees, optionalAttendees) {
     this.duration = duration;
     this.attendees = attendees;
+    this.optionalAttendees = optionalAttendees;
   }
 }
 
@@ -0,0 +1,144 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests indexing the busy times of attendees. */
+@RunWith(JUnit4.class)
+public final class BusyIndexTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_0930AM = TimeRange.getTimeInMinutes(9, 30);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+
+  private static final List<String> PEOPLE = Arrays.asList("A", "B", "C", "D", "E", "F", "G");
+
+  @Test
+  public void eventsOfOneAttendeeAreMerged() {
+    // Events  : |--A--|
+    //              |--A--|  |--A--|
+    // Busy    : |--------|  |-----|
+    BusyIndex index = new BusyIndex(Arrays.asList(
+        event(TIME_0800AM, TIME_0900AM, PERSON_A),
+        event(TIME_0830AM, TIME_0930AM, PERSON_A),
+        event(TIME_1000AM, TIME_1000AM + 30, PERSON_A)));
+
+    assertBusy(index.getBusy(PERSON_A), TIME_0800AM, TIME_0930AM, TIME_1000AM, TIME_1000AM + 30);
+    assertBusy(index.getBusy(PERSON_B));
+  }
+
+  @Test
+  public void attendeesAreMergedTogether() {
+    BusyIndex index = new BusyIndex(Arrays.asList(
+        event(TIME_0800AM, TIME_0830AM, PERSON_A),
+        event(TIME_0830AM, TIME_0900AM, PERSON_B),
+        event(TIME_0930AM, TIME_1000AM, PERSON_A, PERSON_C)));
+
+    assertBusy(index.getBusy(Arrays.asList(PERSON_A, PERSON_B)),
+        TIME_0800AM, TIME_0900AM, TIME_0930AM, TIME_1000AM);
+    assertBusy(index.getBusy(Arrays.asList(PERSON_B, PERSON_C)),
+        TIME_0830AM, TIME_0900AM, TIME_0930AM, TIME_1000AM);
+    assertBusy(index.getBusy(Collections.<String>emptyList()));
+  }
+
+  @Test
+  public void addAndRemoveOnlyChangeTheirAttendees() {
+    Event first = event(TIME_0800AM, TIME_0900AM, PERSON_A, PERSON_B);
+    Event second = event(TIME_0830AM, TIME_1000AM, PERSON_A);
+    BusyIndex index = new BusyIndex(Arrays.asList(first));
+    long[] busyOfB = index.getBusy(PERSON_B);
+
+    index.add(second);
+    assertBusy(index.getBusy(PERSON_A), TIME_0800AM, TIME_1000AM);
+    Assert.assertSame(busyOfB, index.getBusy(PERSON_B));
+
+    index.remove(first);
+    assertBusy(index.getBusy(PERSON_A), TIME_0830AM, TIME_1000AM);
+    assertBusy(index.getBusy(PERSON_B));
+  }
+
+  @Test
+  public void sameEventTwiceNeedsTwoRemoves() {
+    Event event = event(TIME_0800AM, TIME_0900AM, PERSON_A);
+    BusyIndex index = new BusyIndex(Arrays.asList(event, event));
+
+    index.remove(event);
+    assertBusy(index.getBusy(PERSON_A), TIME_0800AM, TIME_0900AM);
+    index.remove(event);
+    assertBusy(index.getBusy(PERSON_A));
+  }
+
+  @Test
+  public void queriesMatchScanningEveryEvent() {
+    Random random = new Random(1);
+    FindMeetingQuery query = new FindMeetingQuery();
+    for (int round = 0; round < 100; round++) {
+      List<Event> events = new ArrayList<>();
+      for (int i = 0; i < 40; i++) {
+        events.add(randomEvent(random, i));
+      }
+      BusyIndex index = new BusyIndex(events.subList(0, 20));
+      for (Event event : events.subList(20, 40)) {
+        index.add(event);
+      }
+      List<Event> kept = new ArrayList<>(events);
+      for (int i = 0; i < 10; i++) {
+        index.remove(kept.remove(random.nextInt(kept.size())));
+      }
+
+      List<String> attendees = new ArrayList<>(PEOPLE);
+      Collections.shuffle(attendees, random);
+      MeetingRequest request =
+          new MeetingRequest(attendees.subList(0, random.nextInt(5)), random.nextInt(90));
+      Assert.assertEquals(query.query(kept, request), query.query(index, request));
+    }
+  }
+
+  private static Event randomEvent(Random random, int number) {
+    int start = random.nextInt(TimeRange.WHOLE_DAY.end());
+    int duration = random.nextInt(Math.min(120, TimeRange.WHOLE_DAY.end() - start) + 1);
+    List<String> attendees = new ArrayList<>(PEOPLE);
+    Collections.shuffle(attendees, random);
+    return new Event("Event " + number, TimeRange.fromStartDuration(start, duration),
+        attendees.subList(0, 1 + random.nextInt(3)));
+  }
+
+  private static Event event(int start, int end, String... attendees) {
+    return new Event("Event", TimeRange.fromStartEnd(start, end, false), Arrays.asList(attendees));
+  }
+
+  /** Checks that busy holds the ranges given as start, end, start, end and so on. */
+  private static void assertBusy(long[] busy, int... startsAndEnds) {
+    long[] expected = new long[startsAndEnds.length / 2];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = FindMeetingQuery.pack(startsAndEnds[2 * i], startsAndEnds[2 * i + 1]);
+    }
+    Assert.assertArrayEquals(expected, busy);
+  }
+}
@@ -14,11 +14,13 @@
 
 package com.google.sps;
 
+import com.google.gson.Gson;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -34,6 +36,8 @@ public final class FindMeetingQueryTest {
   // Some people that we can use in our tests.
   private static final String PERSON_A = "Person A";
   private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+  private static final String PERSON_D = "Person D";
 
   // All dates are the first day of the year 2020.
   private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
@@ -270,4 +274,260 @@ public final class FindMeetingQueryTest {
 
     Assert.assertEquals(expected, actual);
   }
+
+  @Test
+  public void eventsInAnyOrder() {
+    // The same events as everyAttendeeIsConsidered, listed latest first.
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)),
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)));
+
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void backToBackEventsLeaveNoGap() {
+    // Events  :       |--A--|--B--|
+    // Day     : |---------------------|
+    // Options : |--1--|           |-2-|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_60_MINUTES),
+            Arrays.asList(PERSON_B)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), 0);
+
+    Collection<TimeRange> actual = query.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void matchesMinuteByMinuteCheck() {
+    // Random calendars, checked against marking every busy minute of the day.
+    Random random = new Random(1);
+    List<String> people = Arrays.asList("A", "B", "C", "D", "E", "F");
+    for (int round = 0; round < 200; round++) {
+      List<Event> events = new ArrayList<>();
+      int eventCount = random.nextInt(30);
+      for (int i = 0; i < eventCount; i++) {
+        int start = random.nextInt(TimeRange.WHOLE_DAY.end());
+        int duration = random.nextInt(Math.min(180, TimeRange.WHOLE_DAY.end() - start) + 1);
+        List<String> attendees = new ArrayList<>(people);
+        Collections.shuffle(attendees, random);
+        events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+            attendees.subList(0, 1 + random.nextInt(2))));
+      }
+      List<String> attendees = people.subList(0, 1 + random.nextInt(people.size()));
+      int duration = random.nextInt(120);
+      MeetingRequest request = new MeetingRequest(attendees, duration);
+
+      Assert.assertEquals(
+          minuteByMinute(events, request), new ArrayList<>(query.query(events, request)));
+    }
+  }
+
+  @Test
+  public void optionalAttendeeBusyAllDayIsIgnored() {
+    // Events  :       |--A--|     |--B--|
+    //           |--------------C--------------|
+    // Day     : |-----------------------------|
+    // Options : |--1--|     |--2--|     |--3--|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)),
+        new Event("Event 3", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_C)));
+
+    MeetingRequest request = new MeetingRequest(
+        Arrays.asList(PERSON_A, PERSON_B), Arrays.asList(PERSON_C), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void optionalAttendeeIsIncludedWhenPossible() {
+    // Events  :       |--A--|     |--B--|
+    //                       |--C--|
+    // Day     : |-----------------------------|
+    // Options : |--1--|                 |--3--|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)),
+        new Event("Event 3", TimeRange.fromStartDuration(TIME_0830AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_C)));
+
+    MeetingRequest request = new MeetingRequest(
+        Arrays.asList(PERSON_A, PERSON_B), Arrays.asList(PERSON_C), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void optionalAttendeeLeftOutWhenThereIsNoRoom() {
+    // Events  : |--A--|     |----A----|
+    //                 |-B-|
+    // Day     : |---------------------|
+    // Options :       |-----|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0830AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0900AM, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 3", TimeRange.fromStartDuration(TIME_0830AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)));
+
+    MeetingRequest request = new MeetingRequest(
+        Arrays.asList(PERSON_A), Arrays.asList(PERSON_B), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartDuration(TIME_0830AM, DURATION_30_MINUTES));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void mostOptionalAttendeesWin() {
+    // Only from 8:00 to 8:30 can B, C and D all come. Every other time at least one of them is
+    // busy.
+    //
+    // Events  :       |--B--|--C------|
+    //           |-D-|
+    //                             |-D-|
+    // Day     : |-----------------------------|
+    // Options :     |-1-|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM + 30, DURATION_60_MINUTES),
+            Arrays.asList(PERSON_B)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_C)),
+        new Event("Event 3", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            Arrays.asList(PERSON_D)),
+        new Event("Event 4", TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_D)));
+
+    MeetingRequest request = new MeetingRequest(
+        Arrays.asList(PERSON_A), Arrays.asList(PERSON_B, PERSON_C, PERSON_D), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void onlyOptionalAttendeesWithoutRoom() {
+    // With nobody required, a meeting nobody can come to is no option.
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_B)));
+
+    MeetingRequest request =
+        new MeetingRequest(NO_ATTENDEES, Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(events, request);
+    Collection<TimeRange> expected = Arrays.asList();
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void queryAllMatchesSingleQueries() {
+    // Enough requests to be answered in parallel, which must keep them in order.
+    Random random = new Random(1);
+    List<String> people = Arrays.asList("A", "B", "C", "D", "E", "F");
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.end());
+      int duration = random.nextInt(Math.min(180, TimeRange.WHOLE_DAY.end() - start) + 1);
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList(people.get(random.nextInt(people.size())))));
+    }
+    List<MeetingRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      List<String> attendees = new ArrayList<>(people);
+      Collections.shuffle(attendees, random);
+      requests.add(new MeetingRequest(attendees.subList(0, random.nextInt(3)),
+          attendees.subList(3, 3 + random.nextInt(3)), random.nextInt(90)));
+    }
+
+    List<Collection<TimeRange>> actual = query.queryAll(events, requests);
+
+    Assert.assertEquals(requests.size(), actual.size());
+    for (int i = 0; i < requests.size(); i++) {
+      Assert.assertEquals(query.query(events, requests.get(i)), actual.get(i));
+    }
+  }
+
+  @Test
+  public void requestFromJsonWithoutAttendees() {
+    // Gson leaves out fields that are missing from the JSON, even initialized ones
+    MeetingRequest request = new Gson().fromJson("{\"duration\": 30}", MeetingRequest.class);
+
+    List<Collection<TimeRange>> actual = query.queryAll(Arrays.asList(), Arrays.asList(request));
+
+    Assert.assertEquals(Arrays.asList(Arrays.asList(TimeRange.WHOLE_DAY)), actual);
+  }
+
+  /** Finds meeting times the slow way, one minute of the day at a time. */
+  private static List<TimeRange> minuteByMinute(Collection<Event> events, MeetingRequest request) {
+    boolean[] busy = new boolean[TimeRange.WHOLE_DAY.end() + 1];
+    busy[TimeRange.WHOLE_DAY.end()] = true;
+    for (Event event : events) {
+      if (!Collections.disjoint(event.getAttendees(), request.getAttendees())) {
+        for (int minute = event.getWhen().start(); minute < event.getWhen().end(); minute++) {
+          busy[minute] = true;
+        }
+      }
+    }
+
+    List<TimeRange> options = new ArrayList<>();
+    int start = 0;
+    for (int minute = 0; minute < busy.length; minute++) {
+      if (!busy[minute]) {
+        continue;
+      }
+      if (minute > start && minute - start >= request.getDuration()) {
+        options.add(TimeRange.fromStartEnd(start, minute, false));
+      }
+      start = minute + 1;
+    }
+    return options;
+  }
 }
@@ -0,0 +1,84 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests finding free time with a bitmap of busy minutes. */
+@RunWith(JUnit4.class)
+public final class MinuteBitmapTest {
+
+  @Test
+  public void emptyDayIsFree() {
+    Assert.assertEquals(Arrays.asList(TimeRange.WHOLE_DAY),
+        MinuteBitmap.freeRanges(MinuteBitmap.empty(), TimeRange.WHOLE_DAY.duration()));
+  }
+
+  @Test
+  public void fullDayIsBusy() {
+    long[] bitmap = MinuteBitmap.empty();
+    MinuteBitmap.set(bitmap, 0, TimeRange.WHOLE_DAY.end());
+
+    Assert.assertEquals(Collections.emptyList(), MinuteBitmap.freeRanges(bitmap, 0));
+  }
+
+  @Test
+  public void rangesAcrossWordsLeaveTheRightGaps() {
+    // Ends and starts on both sides of word boundaries, and on the last minute of the day
+    long[] bitmap = MinuteBitmap.empty();
+    MinuteBitmap.set(bitmap, 60, 64);
+    MinuteBitmap.set(bitmap, 65, 200);
+    MinuteBitmap.set(bitmap, 1439, 1440);
+
+    List<TimeRange> expected = Arrays.asList(TimeRange.fromStartEnd(0, 60, false),
+        TimeRange.fromStartEnd(64, 65, false), TimeRange.fromStartEnd(200, 1439, false));
+    Assert.assertEquals(expected, MinuteBitmap.freeRanges(bitmap, 1));
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartEnd(200, 1439, false)),
+        MinuteBitmap.freeRanges(bitmap, 61));
+  }
+
+  @Test
+  public void queriesMatchTheSweep() {
+    Random random = new Random(1);
+    FindMeetingQuery query = new FindMeetingQuery();
+    List<String> people = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      people.add("Person " + i);
+    }
+    for (int round = 0; round < 100; round++) {
+      List<Event> events = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        int start = random.nextInt(TimeRange.WHOLE_DAY.end());
+        int duration = random.nextInt(Math.min(90, TimeRange.WHOLE_DAY.end() - start) + 1);
+        events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+            Arrays.asList(people.get(random.nextInt(people.size())))));
+      }
+      BusyIndex index = new BusyIndex(events);
+
+      Collections.shuffle(people, random);
+      MeetingRequest request = new MeetingRequest(
+          people.subList(0, random.nextInt(people.size())), random.nextInt(60));
+      Assert.assertEquals(query.query(index, request), query.queryByMinute(index, request));
+    }
+  }
+}
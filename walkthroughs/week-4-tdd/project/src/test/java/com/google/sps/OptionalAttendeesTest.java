@@ -0,0 +1,155 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests finding meeting times for as many optional attendees as possible. */
+@RunWith(JUnit4.class)
+public final class OptionalAttendeesTest {
+  private static final int MINUTES = TimeRange.WHOLE_DAY.end();
+
+  private final FindMeetingQuery query = new FindMeetingQuery();
+
+  @Test
+  public void matchesTryingEveryStart() {
+    Random random = new Random(1);
+    for (int round = 0; round < 200; round++) {
+      List<String> people = people(8);
+      List<Event> events = randomEvents(random, people, 25);
+      Collections.shuffle(people, random);
+      int requiredCount = random.nextInt(3);
+      MeetingRequest request = new MeetingRequest(people.subList(0, requiredCount),
+          people.subList(requiredCount, requiredCount + random.nextInt(6)), random.nextInt(120));
+
+      Assert.assertEquals(everyStart(events, request), query.query(events, request));
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void hundredsOfOptionalAttendeesScale() {
+    // Trying every set of 500 optional attendees would never finish. Each of these queries looks
+    // at 500 calendars of 20 events.
+    Random random = new Random(1);
+    List<String> people = people(1000);
+    List<Event> events = randomEvents(random, people, 20000);
+    BusyIndex index = new BusyIndex(events);
+    for (int round = 0; round < 100; round++) {
+      Collections.shuffle(people, random);
+      MeetingRequest request =
+          new MeetingRequest(people.subList(0, 2), people.subList(2, 502), 30);
+
+      Collection<TimeRange> options = query.query(index, request);
+      // The slow way takes too long to check every round
+      if (round == 0) {
+        Assert.assertEquals(everyStart(events, request), options);
+      }
+    }
+  }
+
+  private static List<String> people(int count) {
+    List<String> people = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      people.add("Person " + i);
+    }
+    return people;
+  }
+
+  private static List<Event> randomEvents(Random random, List<String> people, int count) {
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      int start = random.nextInt(MINUTES);
+      int duration = random.nextInt(Math.min(180, MINUTES - start) + 1);
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList(people.get(random.nextInt(people.size())))));
+    }
+    return events;
+  }
+
+  /**
+   * Finds meeting times the slow way, by counting the optional attendees who can come to a meeting
+   * at every possible start.
+   */
+  private static List<TimeRange> everyStart(Collection<Event> events, MeetingRequest request) {
+    int length = (int) Math.max(request.getDuration(), 1);
+    List<String> optional = new ArrayList<>(request.getOptionalAttendees());
+    optional.removeAll(request.getAttendees());
+    boolean[] requiredBusy = busyMinutes(events, request.getAttendees());
+    List<boolean[]> optionalBusy = new ArrayList<>();
+    for (String attendee : optional) {
+      optionalBusy.add(busyMinutes(events, Arrays.asList(attendee)));
+    }
+
+    int[] coming = new int[MINUTES];
+    Arrays.fill(coming, -1);
+    int most = -1;
+    for (int start = 0; start + length <= MINUTES; start++) {
+      if (!anyBusy(requiredBusy, start, length)) {
+        coming[start] = 0;
+        for (boolean[] busy : optionalBusy) {
+          coming[start] += anyBusy(busy, start, length) ? 0 : 1;
+        }
+        most = Math.max(most, coming[start]);
+      }
+    }
+    if (most < 0 || (request.getAttendees().isEmpty() && !optional.isEmpty() && most == 0)) {
+      return Collections.emptyList();
+    }
+
+    List<TimeRange> options = new ArrayList<>();
+    for (int start = 0; start < MINUTES; start++) {
+      if (coming[start] != most) {
+        continue;
+      }
+      int last = start;
+      while (last + 1 < MINUTES && coming[last + 1] == most) {
+        last++;
+      }
+      options.add(TimeRange.fromStartEnd(start, last + length, false));
+      start = last;
+    }
+    return options;
+  }
+
+  private static boolean[] busyMinutes(Collection<Event> events, Collection<String> attendees) {
+    boolean[] busy = new boolean[MINUTES];
+    for (Event event : events) {
+      if (!Collections.disjoint(event.getAttendees(), attendees)) {
+        for (int minute = event.getWhen().start(); minute < event.getWhen().end(); minute++) {
+          busy[minute] = true;
+        }
+      }
+    }
+    return busy;
+  }
+
+  private static boolean anyBusy(boolean[] busy, int start, int length) {
+    for (int minute = start; minute < start + length; minute++) {
+      if (busy[minute]) {
+        return true;
+      }
+    }
+    return false;
+  }
+}